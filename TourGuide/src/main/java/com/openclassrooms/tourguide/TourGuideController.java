@@ -1,18 +1,55 @@
 package com.openclassrooms.tourguide;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 import com.openclassrooms.tourguide.dto.NearbyAttractionToJson;
+import com.openclassrooms.tourguide.dto.NearbyAttractionsFromLocation;
 import com.openclassrooms.tourguide.dto.AttractionDistanceFromUser;
+import com.openclassrooms.tourguide.dto.AttractionRewardStats;
+import com.openclassrooms.tourguide.dto.CompactNearbyAttractions;
+import com.openclassrooms.tourguide.dto.CompactRewards;
+import com.openclassrooms.tourguide.dto.UserNearbyAttractionsToJson;
+import com.openclassrooms.tourguide.dto.UserImportReport;
+import com.openclassrooms.tourguide.dto.UserRewardPoints;
+import com.openclassrooms.tourguide.service.RewardsLeaderboard;
+import com.openclassrooms.tourguide.service.RewardsExportService;
 import com.openclassrooms.tourguide.service.RewardsService;
-import gpsUtil.GpsUtil;
+import com.openclassrooms.tourguide.service.RewardsStreamService;
+import com.openclassrooms.tourguide.service.UserImportService;
 import gpsUtil.location.Attraction;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import gpsUtil.location.VisitedLocation;
 
@@ -25,6 +62,20 @@ import tripPricer.Provider;
 @RestController
 public class TourGuideController {
 
+    // Distinguishes the ETags of this instance from those issued before a restart,
+    // since the version counters of the users start again from zero
+    private static final String ETAG_EPOCH = Long.toHexString(System.currentTimeMillis());
+
+    // Formats a body can be negotiated in, in the order of the message converters
+    private static final List<MediaType> BODY_FORMATS = List.of(MediaType.APPLICATION_JSON,
+            MediaType.valueOf("application/x-jackson-smile"), MediaType.APPLICATION_CBOR);
+
+    // Latest instant of a visited location, its time being kept in epoch milliseconds
+    private static final Instant LAST_INSTANT = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+    // Maximum number of users in one batch request
+    private static final int MAX_BATCH_SIZE = 10000;
+
 	@Autowired
 	private TourGuideService tourGuideService;
 
@@ -32,19 +83,103 @@ public class TourGuideController {
     private RewardsService rewardsService;
 
     @Autowired
-    private GpsUtil gpsUtil;
+    private RewardsLeaderboard rewardsLeaderboard;
+
+    @Autowired
+    private RewardsStreamService rewardsStreamService;
+
+    @Autowired
+    private RewardsExportService rewardsExportService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ContentNegotiationManager contentNegotiationManager;
 	
     @RequestMapping("/")
     public String index() {
         return "Greetings from TourGuide!";
     }
     
+    /**
+     * Retrieves the location of the given user, fresh enough according to the max-age.
+     * A location older than the max-age is still returned while refreshed in the background, unless it is
+     * beyond the stale-while-revalidate window, in which case the user is located again before answering.
+     * The response carries an ETag built from the version of the user's visited locations,
+     * so a client sending it back in If-None-Match gets a 304 as long as the user has not moved.
+     *
+     * @param userName The username of the user whose location is requested.
+     * @param maxAgeSeconds The age in seconds up to which the last known location is fine, the default one if absent.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return The location, or null when a 304 has been sent.
+     */
     @RequestMapping("/getLocation") 
-    public VisitedLocation getLocation(@RequestParam String userName) {
-    	return tourGuideService.getUserLocation(getUser(userName));
+    public VisitedLocation getLocation(@RequestParam String userName, @RequestParam(required = false) Long maxAgeSeconds,
+            NativeWebRequest request) {
+        User user = getUser(userName);
+        long version = user.getVisitedLocationsVersion();
+        VisitedLocation visitedLocation = maxAgeSeconds == null ? tourGuideService.getUserLocation(user)
+                : tourGuideService.getUserLocation(user, Duration.ofSeconds(maxAgeSeconds));
+        // Without ETag when the locations changed meanwhile, it could not tell which one was returned
+        if (user.getVisitedLocationsVersion() == version && request.checkNotModified(negotiatedETag(request, "location", version))) {
+            return null;
+        }
+    	return visitedLocation;
     }
 
 
+    /**
+     * Retrieves the locations visited by the given user within a time range.
+     * The locations are decoded from the user's history and written to the response one at a time,
+     * in the same format as /getLocation, without building the list of them.
+     *
+     * @param userName The username of the user whose history is requested.
+     * @param from The start of the range as an ISO-8601 instant, inclusive. Defaults to the start of the history.
+     * @param to The end of the range as an ISO-8601 instant, inclusive. Defaults to the end of the history.
+     * @return A JSON array of the visited locations, streamed as they are decoded, a 404 for an unknown user
+     * or a 400 for a range ending before it starts.
+     */
+    @RequestMapping("/getLocationHistory")
+    public ResponseEntity<StreamingResponseBody> getLocationHistory(@RequestParam String userName,
+            @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to) {
+        // Checked before the body is returned, the status being committed once it streams
+        User user = getUser(userName);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Instant rangeStart = from != null ? from : Instant.EPOCH;
+        Instant rangeEnd = to != null ? to : LAST_INSTANT;
+        if (rangeStart.isAfter(rangeEnd)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                tourGuideService.forEachVisitedLocation(user, rangeStart, rangeEnd, (timeVisited, latitude, longitude) -> {
+                    try {
+                        generator.writeStartObject();
+                        generator.writeObjectField("userId", user.getUserId());
+                        generator.writeObjectFieldStart("location");
+                        generator.writeNumberField("longitude", longitude);
+                        generator.writeNumberField("latitude", latitude);
+                        generator.writeEndObject();
+                        generator.writeObjectField("timeVisited", new Date(timeVisited));
+                        generator.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * Retrieves the five closest tourist attractions to the given user.
      * This method fetches the user's last known location and finds the five nearest attractions,
@@ -80,20 +215,338 @@ public class TourGuideController {
         return ResponseEntity.ok(nearbyAttractionsToReturnToJson);
     }
 
+    /**
+     * Retrieves the five closest tourist attractions to the given user, in a compact shape:
+     * the user's location is given once, each attraction with its coordinates, distance and reward points.
+     * Like every endpoint returning an object, it answers in CBOR or Smile when the Accept header asks for
+     * application/cbor or application/x-jackson-smile, JSON otherwise.
+     *
+     * @param userName The username of the user whose location is used to find nearby attractions.
+     * @return The user's location and the nearby attractions.
+     */
+    @RequestMapping("/getNearbyAttractionsCompact")
+    public CompactNearbyAttractions getNearbyAttractionsCompact(@RequestParam String userName) {
+        User user = getUser(userName);
+        VisitedLocation visitedLocation = tourGuideService.getUserLocation(user);
+        List<AttractionDistanceFromUser> nearbyAttractions = tourGuideService.getNearByAttractions(user, visitedLocation, 5);
+
+        List<CompactNearbyAttractions.Attraction> attractions = new ArrayList<>(nearbyAttractions.size());
+        for (AttractionDistanceFromUser attractionDistanceFromUser : nearbyAttractions) {
+            Attraction attraction = attractionDistanceFromUser.getAttraction();
+            attractions.add(new CompactNearbyAttractions.Attraction(attraction.attractionName, attraction.latitude,
+                    attraction.longitude, attractionDistanceFromUser.getDistance(),
+                    rewardsService.getRewardPoints(attraction, user)));
+        }
+        return new CompactNearbyAttractions(visitedLocation.location.latitude, visitedLocation.location.longitude,
+                attractions);
+    }
+
+    /**
+     * Retrieves the closest attractions of many users in one call.
+     * The attractions are ranked from each user's last known location, expired ones being refreshed in the background.
+     * Reward points cost a call to RewardCentral per attraction, they are left at 0 unless requested.
+     *
+     * @param userNames The usernames of the users, unknown ones and those who could not be located are skipped.
+     * @param limit The number of attractions to return per user.
+     * @param includeRewardPoints Whether the reward points of the attractions should be fetched.
+     * @return The nearby attractions of each known user, in the order of the usernames.
+     */
+    @PostMapping("/getNearbyAttractionsBatch")
+    public ResponseEntity<List<UserNearbyAttractionsToJson>> getNearbyAttractionsBatch(@RequestBody List<String> userNames,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "false") boolean includeRewardPoints) {
+        if (userNames.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<User> users = new ArrayList<>(userNames.size());
+        for (String userName : userNames) {
+            User user = getUser(userName);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        Map<UUID, NearbyAttractionsFromLocation> nearbyAttractionsByUser = tourGuideService.getNearByAttractions(users, limit);
+
+        List<UserNearbyAttractionsToJson> response = new ArrayList<>(users.size());
+        for (User user : users) {
+            NearbyAttractionsFromLocation nearbyAttractionsFromLocation = nearbyAttractionsByUser.get(user.getUserId());
+            if (nearbyAttractionsFromLocation == null) {
+                continue;
+            }
+            // The location the attractions were ranked from, the user's last one may have been refreshed since
+            VisitedLocation visitedLocation = nearbyAttractionsFromLocation.getVisitedLocation();
+            List<NearbyAttractionToJson> nearbyAttractions = new ArrayList<>();
+            for (AttractionDistanceFromUser attractionDistanceFromUser : nearbyAttractionsFromLocation.getAttractions()) {
+                Attraction attraction = attractionDistanceFromUser.getAttraction();
+                int rewardPoints = includeRewardPoints ? rewardsService.getRewardPoints(attraction, user) : 0;
+                nearbyAttractions.add(new NearbyAttractionToJson(attraction, visitedLocation,
+                        attractionDistanceFromUser.getDistance(), rewardPoints));
+            }
+            response.add(new UserNearbyAttractionsToJson(user.getUserName(), nearbyAttractions));
+        }
+        return ResponseEntity.ok(response);
+    }
 
+
+    /**
+     * Retrieves the rewards earned by the given user.
+     * Answers If-None-Match with a 304, without serializing the rewards, when none were added since.
+     *
+     * @param userName The username of the user whose rewards are requested.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return The user's rewards, or null when a 304 has been sent.
+     */
     @RequestMapping("/getRewards") 
-    public List<UserReward> getRewards(@RequestParam String userName) {
-    	return tourGuideService.getUserRewards(getUser(userName));
+    public List<UserReward> getRewards(@RequestParam String userName, NativeWebRequest request) {
+        User user = getUser(userName);
+        if (request.checkNotModified(negotiatedETag(request, "rewards", user.getUserRewardsVersion()))) {
+            return null;
+        }
+    	return tourGuideService.getUserRewards(user);
+    }
+
+    /**
+     * Retrieves the rewards earned by the given user, in a compact shape: the user id is given once,
+     * each reward as the attraction name, the points, the coordinates and the time in epoch milliseconds.
+     * Answers If-None-Match with a 304 as /getRewards does, and in CBOR or Smile when the Accept header asks for it.
+     *
+     * @param userName The username of the user whose rewards are requested.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return The user's rewards, or null when a 304 has been sent.
+     */
+    @RequestMapping("/getRewardsCompact")
+    public CompactRewards getRewardsCompact(@RequestParam String userName, NativeWebRequest request) {
+        User user = getUser(userName);
+        if (request.checkNotModified(negotiatedETag(request, "rewards-compact", user.getUserRewardsVersion()))) {
+            return null;
+        }
+        List<UserReward> userRewards = tourGuideService.getUserRewards(user);
+        List<CompactRewards.Reward> rewards = new ArrayList<>(userRewards.size());
+        for (UserReward userReward : userRewards) {
+            rewards.add(new CompactRewards.Reward(userReward.attraction.attractionName, userReward.getRewardPoints(),
+                    userReward.visitedLocation.location.latitude, userReward.visitedLocation.location.longitude,
+                    userReward.visitedLocation.timeVisited.getTime()));
+        }
+        return new CompactRewards(user.getUserId(), rewards);
     }
-       
+
+    /**
+     * Retrieves trip deals for the given user.
+     * The ETag identifies the deals held by the user together with the rewards they were priced with,
+     * so a client already holding them gets a 304 and the trip pricer is not called again.
+     *
+     * @param userName The username of the user whose trip deals are requested.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return The newly priced trip deals with their ETag, or a 304 when the client holds the current ones.
+     */
     @RequestMapping("/getTripDeals")
-    public List<Provider> getTripDeals(@RequestParam String userName) {
-    	return tourGuideService.getTripDeals(getUser(userName));
+    public ResponseEntity<List<Provider>> getTripDeals(@RequestParam String userName, NativeWebRequest request) {
+        User user = getUser(userName);
+        long rewardsVersion = user.getUserRewardsVersion();
+        // Matched by hand: checkNotModified would already set the ETag of the deals held, not of those priced below
+        if (user.getTripDealsVersion() > 0) {
+            String eTag = tripDealsETag(request, user.getTripDealsVersion(), rewardsVersion);
+            if (isHeldByClient(request, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+        List<Provider> providers = tourGuideService.getTripDeals(user);
+        return ResponseEntity.ok()
+                .eTag(tripDealsETag(request, user.getTripDealsVersion(), rewardsVersion))
+                .body(providers);
+    }
+    
+    /**
+     * Streams the rewards of the given user as Server-Sent Events, each new reward being pushed as it is added.
+     * The id of an event is the position of the reward, a client reconnecting with the Last-Event-ID header
+     * gets the rewards it missed replayed, a client without it only gets the rewards added from now on.
+     *
+     * @param userName The username of the user whose rewards are streamed.
+     * @param lastEventId The id of the last event received by the client, if any.
+     * @return The emitter of the reward events.
+     */
+    @GetMapping(value = "/rewards/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRewards(@RequestParam String userName,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return rewardsStreamService.subscribe(getUser(userName), lastEventId);
+    }
+
+    /**
+     * Retrieves the users who earned the most reward points, from the incrementally maintained leaderboard.
+     *
+     * @param limit The number of users to return.
+     * @return The users and their total reward points, by decreasing points.
+     */
+    @RequestMapping("/getTopRewardedUsers")
+    public List<UserRewardPoints> getTopRewardedUsers(@RequestParam(defaultValue = "10") int limit) {
+        return rewardsLeaderboard.getTopUsers(limit);
+    }
+
+    /**
+     * Retrieves, for each rewarded attraction, the number of rewards granted and the points they amount to.
+     *
+     * @return The statistics of the attractions, by decreasing number of rewards.
+     */
+    @RequestMapping("/getAttractionRewardStats")
+    public List<AttractionRewardStats> getAttractionRewardStats() {
+        return rewardsLeaderboard.getAttractionStats();
     }
     
+    /**
+     * Exports the rewards of all users, one flat row per reward, streamed as they are rendered.
+     * Rows are ordered by username: an interrupted export resumes with from set to the userName of the last
+     * row received, the rows of that user being exported again. The rows are gzip-compressed for clients
+     * accepting it.
+     *
+     * @param format ndjson for one JSON object per line, csv for comma-separated values with a header.
+     * @param from The username the export starts from, inclusive, to resume an export. All users if absent.
+     * @param acceptEncoding The encodings accepted by the client.
+     * @return The rows of the rewards, or a 400 for an unknown format.
+     */
+    @RequestMapping("/exportRewards")
+    public ResponseEntity<StreamingResponseBody> exportRewards(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String from,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        RewardsExportService.Format exportFormat;
+        try {
+            exportFormat = RewardsExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 64 * 1024, true)) {
+                    rewardsExportService.export(gzipOutputStream, exportFormat, from);
+                }
+            } else {
+                rewardsExportService.export(outputStream, exportFormat, from);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == RewardsExportService.Format.CSV ? new MediaType("text", "csv")
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Imports users along with their location history, and calculates their initial rewards.
+     * The body holds one user per line as JSON, for instance:
+     * {"userName":"jon","phoneNumber":"000","emailAddress":"jon@tourGuide.com",
+     *  "visitedLocations":[{"latitude":33.817595,"longitude":-117.922008,"timeVisited":"2024-05-01T10:00:00Z"}]}
+     * and may be gzip-compressed. Users whose username is taken are skipped, invalid lines are reported.
+     *
+     * @param body The users, read as the import goes.
+     * @param contentEncoding The encoding of the body, gzip or none.
+     * @return The counts of users imported and rejected, once their rewards are calculated.
+     * @throws IOException When the body could not be read.
+     */
+    @PostMapping("/importUsers")
+    public UserImportReport importUsers(InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        InputStream users = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+        return userImportService.importUsers(users);
+    }
+
     private User getUser(String userName) {
     	return tourGuideService.getUser(userName);
     }
+
+    /**
+     * Builds the ETag of a resource in the format the body is negotiated in, JSON, Smile or CBOR,
+     * so that a body held in one format is never revalidated as another. Also sends Vary: Accept,
+     * for caches to keep the formats apart.
+     */
+    private String negotiatedETag(NativeWebRequest request, String resource, long version) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return "\"" + ETAG_EPOCH + "-" + resource + "-" + version + "-" + negotiatedFormat(request).getSubtype() + "\"";
+    }
+
+    private String tripDealsETag(NativeWebRequest request, long tripDealsVersion, long rewardsVersion) {
+        return negotiatedETag(request, "tripDeals-" + tripDealsVersion, rewardsVersion);
+    }
+
+    /**
+     * Tells whether Accept-Encoding accepts gzip with a quality above 0, given for gzip itself or else for *.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        double quality = gzipQuality != null ? gzipQuality : anyQuality != null ? anyQuality : 0;
+        return quality > 0;
+    }
+
+    /**
+     * Tells whether If-None-Match lists the given ETag, compared weakly as for a GET.
+     */
+    private static boolean isHeldByClient(NativeWebRequest request, String eTag) {
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(eTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the body format the way the message converters would: the first format compatible with the first
+     * acceptable media type, JSON for any media type.
+     */
+    private MediaType negotiatedFormat(NativeWebRequest request) {
+        try {
+            for (MediaType acceptable : contentNegotiationManager.resolveMediaTypes(request)) {
+                for (MediaType format : BODY_FORMATS) {
+                    if (acceptable.isCompatibleWith(format)) {
+                        return format;
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            // Left to the message converters to answer with a 406
+        }
+        return MediaType.APPLICATION_JSON;
+    }
    
 
 }
\ No newline at end of file
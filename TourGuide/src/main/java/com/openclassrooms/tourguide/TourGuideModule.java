@@ -2,27 +2,38 @@ package com.openclassrooms.tourguide;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
-import com.openclassrooms.tourguide.service.RewardsService;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.RewardCentralGateway;
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
 
+/**
+ * Wires the upstream libraries, unless the simulation profile replaces them with local stand-ins.
+ */
 @Configuration
+@Profile("!simulation")
 public class TourGuideModule {
 	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	public GpsGateway getGpsGateway() {
+		return new GpsUtilGateway(new GpsUtil());
 	}
 	
 	@Bean
-	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+	public RewardsGateway getRewardsGateway() {
+		return new RewardCentralGateway(new RewardCentral());
 	}
-	
+
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	public TripPricingGateway getTripPricingGateway() {
+		return new TripPricerGateway(new TripPricer());
 	}
 	
 }
@@ -0,0 +1,120 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits the requests each endpoint processes at the same time, and rejects the others fast
+ * instead of letting them pile up on the upstream services.
+ * <p>
+ * A request finding no free slot waits, unless too many are already waiting (429 Too Many Requests).
+ * The wait is bounded by the endpoint's queue time budget, counted from the request's arrival,
+ * which is taken from the X-Request-Start header set by the load balancer when present (epoch milliseconds,
+ * optionally prefixed by "t="). A request whose budget ran out, including before reaching the application,
+ * is rejected with a 503 Service Unavailable before any upstream call is made.
+ * <p>
+ * The slot is held until the handler returns, so the writing of a streamed response is not counted.
+ * Paths that are not endpoints of the application share a single limiter with the default limits.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+	static final String REQUEST_START_HEADER = "X-Request-Start";
+
+	private final AdmissionControlProperties properties;
+	private final Map<String, EndpointLimiter> limiters = new HashMap<>();
+	private final EndpointLimiter otherPathsLimiter;
+
+	/**
+	 * @param properties The limits of the endpoints.
+	 * @param endpointPaths The paths of the application's endpoints, each getting its own limiter.
+	 */
+	public AdmissionControlFilter(AdmissionControlProperties properties, Collection<String> endpointPaths) {
+		this.properties = properties;
+		endpointPaths.forEach(path -> {
+			String endpoint = path.startsWith("/") ? path.substring(1) : path;
+			limiters.put(endpoint, new EndpointLimiter(limitOf(endpoint)));
+		});
+		this.otherPathsLimiter = new EndpointLimiter(properties.getDefaultLimit());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String endpoint = endpointOf(request);
+		EndpointLimiter limiter = limiters.getOrDefault(endpoint, otherPathsLimiter);
+		long deadlineNanos = System.nanoTime() + limiter.getQueueTimeoutNanos() - queuedSoFarNanos(request);
+
+		EndpointLimiter.Admission admission;
+		try {
+			admission = limiter.acquire(deadlineNanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			admission = EndpointLimiter.Admission.DEADLINE_EXCEEDED;
+		}
+
+		switch (admission) {
+			case ADMITTED:
+				try {
+					filterChain.doFilter(request, response);
+				} finally {
+					limiter.release();
+				}
+				break;
+			case QUEUE_FULL:
+				logger.debug("Rejecting request to /" + endpoint + ": too many requests waiting");
+				reject(response, HttpStatus.TOO_MANY_REQUESTS);
+				break;
+			default:
+				logger.debug("Rejecting request to /" + endpoint + ": queue time budget exceeded");
+				reject(response, HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	private String endpointOf(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
+	private EndpointLimit limitOf(String endpoint) {
+		for (Map.Entry<String, EndpointLimit> entry : properties.getEndpoints().entrySet()) {
+			if (entry.getKey().toLowerCase(Locale.ROOT).equals(endpoint.toLowerCase(Locale.ROOT))) {
+				return entry.getValue();
+			}
+		}
+		return properties.getDefaultLimit();
+	}
+
+	/**
+	 * Time the request spent between the load balancer and this filter, 0 when unknown.
+	 */
+	private long queuedSoFarNanos(HttpServletRequest request) {
+		String requestStart = request.getHeader(REQUEST_START_HEADER);
+		if (requestStart == null) {
+			return 0;
+		}
+		try {
+			long startMillis = Long.parseLong(requestStart.startsWith("t=") ? requestStart.substring(2) : requestStart);
+			return Math.max(0, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startMillis));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void reject(HttpServletResponse response, HttpStatus status) throws IOException {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentType("text/plain");
+		response.getWriter().write(status.getReasonPhrase());
+	}
+}
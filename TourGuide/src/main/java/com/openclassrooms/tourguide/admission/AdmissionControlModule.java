@@ -0,0 +1,34 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Registers the admission control in front of every endpoint, unless tourguide.admission.enabled is false.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+@ConditionalOnProperty(prefix = "tourguide.admission", name = "enabled", matchIfMissing = true)
+public class AdmissionControlModule {
+
+	@Bean
+	public FilterRegistrationBean<AdmissionControlFilter> getAdmissionControlFilter(
+			AdmissionControlProperties properties, RequestMappingHandlerMapping requestMappingHandlerMapping) {
+		Set<String> endpointPaths = requestMappingHandlerMapping.getHandlerMethods().keySet().stream()
+				.flatMap(mapping -> mapping.getPatternValues().stream())
+				.collect(Collectors.toSet());
+		FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+				new AdmissionControlFilter(properties, endpointPaths));
+		// Ahead of any other filter, so that rejected requests cost as little as possible
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+}
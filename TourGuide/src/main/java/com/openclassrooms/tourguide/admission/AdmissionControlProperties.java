@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the admission control of the REST endpoints.
+ * Endpoints are keyed by their path without the leading slash, case insensitive,
+ * e.g. tourguide.admission.endpoints.getNearbyAttractions.max-concurrent=50
+ */
+@ConfigurationProperties(prefix = "tourguide.admission")
+public class AdmissionControlProperties {
+	private boolean enabled = true;
+	// Limits of the endpoints without their own
+	private EndpointLimit defaultLimit = new EndpointLimit();
+	private Map<String, EndpointLimit> endpoints = new HashMap<>();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public EndpointLimit getDefaultLimit() {
+		return defaultLimit;
+	}
+
+	public void setDefaultLimit(EndpointLimit defaultLimit) {
+		this.defaultLimit = defaultLimit;
+	}
+
+	public Map<String, EndpointLimit> getEndpoints() {
+		return endpoints;
+	}
+
+	public void setEndpoints(Map<String, EndpointLimit> endpoints) {
+		this.endpoints = endpoints;
+	}
+}
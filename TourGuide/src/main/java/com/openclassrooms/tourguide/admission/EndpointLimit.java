@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.time.Duration;
+
+/**
+ * Admission limits of an endpoint.
+ */
+public class EndpointLimit {
+	// Requests processed at the same time
+	private int maxConcurrent = 200;
+	// Requests waiting for a slot, beyond which new ones are rejected with a 429
+	private int maxQueued = 100;
+	// Longest time a request may wait, counted from its arrival, before being rejected with a 503
+	private Duration queueTimeout = Duration.ofSeconds(2);
+
+	public EndpointLimit() {
+	}
+
+	public EndpointLimit(int maxConcurrent, int maxQueued, Duration queueTimeout) {
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.queueTimeout = queueTimeout;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public void setMaxQueued(int maxQueued) {
+		this.maxQueued = maxQueued;
+	}
+
+	public Duration getQueueTimeout() {
+		return queueTimeout;
+	}
+
+	public void setQueueTimeout(Duration queueTimeout) {
+		this.queueTimeout = queueTimeout;
+	}
+}
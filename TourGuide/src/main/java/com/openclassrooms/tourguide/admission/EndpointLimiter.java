@@ -0,0 +1,64 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the requests an endpoint processes at the same time and the requests waiting to be processed.
+ */
+class EndpointLimiter {
+
+	enum Admission {
+		ADMITTED,
+		// Too many requests already waiting
+		QUEUE_FULL,
+		// The request's queue time budget ran out before a slot was free
+		DEADLINE_EXCEEDED
+	}
+
+	private final Semaphore slots;
+	private final int maxQueued;
+	private final long queueTimeoutNanos;
+	private final AtomicInteger queued = new AtomicInteger();
+
+	EndpointLimiter(EndpointLimit limit) {
+		this.slots = new Semaphore(limit.getMaxConcurrent(), true);
+		this.maxQueued = limit.getMaxQueued();
+		this.queueTimeoutNanos = limit.getQueueTimeout().toNanos();
+	}
+
+	long getQueueTimeoutNanos() {
+		return queueTimeoutNanos;
+	}
+
+	/**
+	 * Takes a slot, waiting at most until the deadline. A slot taken must be given back with release().
+	 * @param deadlineNanos The System.nanoTime() after which the request is no longer worth processing.
+	 * @return ADMITTED once a slot was taken, otherwise the reason for rejecting the request.
+	 */
+	Admission acquire(long deadlineNanos) throws InterruptedException {
+		long remainingNanos = deadlineNanos - System.nanoTime();
+		if (remainingNanos <= 0) {
+			return Admission.DEADLINE_EXCEEDED;
+		}
+		if (slots.tryAcquire()) {
+			return Admission.ADMITTED;
+		}
+		if (queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			return Admission.QUEUE_FULL;
+		}
+		try {
+			return slots.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS)
+					? Admission.ADMITTED
+					: Admission.DEADLINE_EXCEEDED;
+		} finally {
+			queued.decrementAndGet();
+		}
+	}
+
+	void release() {
+		slots.release();
+	}
+}
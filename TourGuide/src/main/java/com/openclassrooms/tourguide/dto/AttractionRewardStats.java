@@ -0,0 +1,30 @@
+package com.openclassrooms.tourguide.dto;
+
+/**
+ * Represents the rewards granted for visiting an attraction, over all users.
+ */
+
+public class AttractionRewardStats {
+    private final String attractionName;
+    private final long rewardCount;
+    private final long totalRewardPoints;
+
+    public AttractionRewardStats(String attractionName, long rewardCount, long totalRewardPoints) {
+        this.attractionName = attractionName;
+        this.rewardCount = rewardCount;
+        this.totalRewardPoints = totalRewardPoints;
+    }
+
+    public String getAttractionName() {
+        return attractionName;
+    }
+
+    public long getRewardCount() {
+        return rewardCount;
+    }
+
+    public long getTotalRewardPoints() {
+        return totalRewardPoints;
+    }
+
+}
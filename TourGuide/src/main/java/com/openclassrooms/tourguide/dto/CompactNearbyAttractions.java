@@ -0,0 +1,71 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.List;
+
+/**
+ * Represents the closest attractions to a user, the user's location being given once rather than on every row.
+ */
+
+public class CompactNearbyAttractions {
+    private final double userLatitude;
+    private final double userLongitude;
+    private final List<Attraction> attractions;
+
+    public CompactNearbyAttractions(double userLatitude, double userLongitude, List<Attraction> attractions) {
+        this.userLatitude = userLatitude;
+        this.userLongitude = userLongitude;
+        this.attractions = attractions;
+    }
+
+    public double getUserLatitude() {
+        return userLatitude;
+    }
+
+    public double getUserLongitude() {
+        return userLongitude;
+    }
+
+    public List<Attraction> getAttractions() {
+        return attractions;
+    }
+
+    /**
+     * One attraction, its distance from the user and the points the user would earn there.
+     */
+    public static class Attraction {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceInMiles;
+        private final int rewardPoints;
+
+        public Attraction(String name, double latitude, double longitude, double distanceInMiles, int rewardPoints) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceInMiles = distanceInMiles;
+            this.rewardPoints = rewardPoints;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getDistanceInMiles() {
+            return distanceInMiles;
+        }
+
+        public int getRewardPoints() {
+            return rewardPoints;
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents the rewards of a user as flat rows, the user being given once rather than with every reward.
+ * <p>
+ * The location of a reward is reduced to its coordinates and its time to epoch milliseconds,
+ * and the attraction to its name.
+ */
+
+public class CompactRewards {
+    private final UUID userId;
+    private final List<Reward> rewards;
+
+    public CompactRewards(UUID userId, List<Reward> rewards) {
+        this.userId = userId;
+        this.rewards = rewards;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public List<Reward> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * One reward: the attraction, the points, and where and when the user was rewarded.
+     */
+    public static class Reward {
+        private final String attractionName;
+        private final int rewardPoints;
+        private final double latitude;
+        private final double longitude;
+        private final long timeVisited;
+
+        public Reward(String attractionName, int rewardPoints, double latitude, double longitude, long timeVisited) {
+            this.attractionName = attractionName;
+            this.rewardPoints = rewardPoints;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timeVisited = timeVisited;
+        }
+
+        public String getAttractionName() {
+            return attractionName;
+        }
+
+        public int getRewardPoints() {
+            return rewardPoints;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public long getTimeVisited() {
+            return timeVisited;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents one line of a user import: a user along with the locations they visited.
+ */
+
+public class ImportedUser {
+    private UUID userId;
+    private String userName;
+    private String phoneNumber;
+    private String emailAddress;
+    private List<ImportedLocation> visitedLocations = new ArrayList<>();
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public String getEmailAddress() {
+        return emailAddress;
+    }
+
+    public void setEmailAddress(String emailAddress) {
+        this.emailAddress = emailAddress;
+    }
+
+    public List<ImportedLocation> getVisitedLocations() {
+        return visitedLocations;
+    }
+
+    public void setVisitedLocations(List<ImportedLocation> visitedLocations) {
+        this.visitedLocations = visitedLocations;
+    }
+
+    /**
+     * A location visited by an imported user.
+     */
+    public static class ImportedLocation {
+        private double latitude;
+        private double longitude;
+        private Date timeVisited;
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public void setLatitude(double latitude) {
+            this.latitude = latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public void setLongitude(double longitude) {
+            this.longitude = longitude;
+        }
+
+        public Date getTimeVisited() {
+            return timeVisited;
+        }
+
+        public void setTimeVisited(Date timeVisited) {
+            this.timeVisited = timeVisited;
+        }
+    }
+
+}
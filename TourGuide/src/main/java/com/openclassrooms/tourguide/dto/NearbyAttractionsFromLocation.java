@@ -0,0 +1,30 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.List;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Represents the nearby attractions of one user, with the location they were ranked from.
+ * <p>
+ * The user's last location can change once the attractions are ranked, so responses are built
+ * from this one to keep the location and the distances consistent.
+ */
+public class NearbyAttractionsFromLocation {
+    private final VisitedLocation visitedLocation;
+    private final List<AttractionDistanceFromUser> attractions;
+
+    public NearbyAttractionsFromLocation(VisitedLocation visitedLocation, List<AttractionDistanceFromUser> attractions) {
+        this.visitedLocation = visitedLocation;
+        this.attractions = attractions;
+    }
+
+    public VisitedLocation getVisitedLocation() {
+        return visitedLocation;
+    }
+
+    public List<AttractionDistanceFromUser> getAttractions() {
+        return attractions;
+    }
+
+}
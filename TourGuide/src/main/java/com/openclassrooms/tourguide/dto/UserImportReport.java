@@ -0,0 +1,76 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a user import: the users imported or rejected, and the throughput reached.
+ */
+
+public class UserImportReport {
+    private final long linesRead;
+    private final long usersImported;
+    private final long duplicateUsers;
+    private final long invalidLines;
+    private final long locationsImported;
+    private final long rewardCalculationsFailed;
+    private final double elapsedSeconds;
+    private final List<String> errors;
+
+    public UserImportReport(long linesRead, long usersImported, long duplicateUsers, long invalidLines,
+            long locationsImported, long rewardCalculationsFailed, double elapsedSeconds, List<String> errors) {
+        this.linesRead = linesRead;
+        this.usersImported = usersImported;
+        this.duplicateUsers = duplicateUsers;
+        this.invalidLines = invalidLines;
+        this.locationsImported = locationsImported;
+        this.rewardCalculationsFailed = rewardCalculationsFailed;
+        this.elapsedSeconds = elapsedSeconds;
+        this.errors = errors;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getUsersImported() {
+        return usersImported;
+    }
+
+    /**
+     * @return The users skipped because a user with the same username already existed.
+     */
+    public long getDuplicateUsers() {
+        return duplicateUsers;
+    }
+
+    public long getInvalidLines() {
+        return invalidLines;
+    }
+
+    public long getLocationsImported() {
+        return locationsImported;
+    }
+
+    public long getRewardCalculationsFailed() {
+        return rewardCalculationsFailed;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * @return The users imported per second, rewards included.
+     */
+    public double getUsersPerSecond() {
+        return elapsedSeconds > 0 ? usersImported / elapsedSeconds : 0;
+    }
+
+    /**
+     * @return The first errors met, with their line numbers.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+}
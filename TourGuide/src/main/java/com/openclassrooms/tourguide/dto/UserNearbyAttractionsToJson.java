@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.List;
+
+/**
+ * Represents the nearby attractions of one user in a batch response.
+ */
+public class UserNearbyAttractionsToJson {
+    private String userName;
+    private List<NearbyAttractionToJson> nearbyAttractions;
+
+    public UserNearbyAttractionsToJson(String userName, List<NearbyAttractionToJson> nearbyAttractions) {
+        this.userName = userName;
+        this.nearbyAttractions = nearbyAttractions;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public List<NearbyAttractionToJson> getNearbyAttractions() {
+        return nearbyAttractions;
+    }
+
+}
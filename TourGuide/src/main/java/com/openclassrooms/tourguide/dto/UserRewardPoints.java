@@ -0,0 +1,32 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.UUID;
+
+/**
+ * Represents the total reward points earned by a user, as ranked in the rewards leaderboard.
+ */
+
+public class UserRewardPoints {
+    private final UUID userId;
+    private final String userName;
+    private final long totalRewardPoints;
+
+    public UserRewardPoints(UUID userId, String userName, long totalRewardPoints) {
+        this.userId = userId;
+        this.userName = userName;
+        this.totalRewardPoints = totalRewardPoints;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public long getTotalRewardPoints() {
+        return totalRewardPoints;
+    }
+
+}
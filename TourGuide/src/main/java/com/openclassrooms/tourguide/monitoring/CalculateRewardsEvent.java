@@ -0,0 +1,45 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of the reward calculation of a user.
+ */
+@Name("com.openclassrooms.tourguide.CalculateRewards")
+@Label("Calculate Rewards")
+@Category({ "TourGuide", "Rewards" })
+@StackTrace(false)
+public class CalculateRewardsEvent extends Event {
+
+	@Label("User Id")
+	public String userId;
+
+	@Label("Lane")
+	public String lane;
+
+	@Label("Queue Wait")
+	@Description("Time spent waiting for a thread of the lane")
+	@Timespan(Timespan.NANOSECONDS)
+	public long queueWait;
+
+	@Label("Locations Evaluated")
+	@Description("Number of locations the attractions were scanned for")
+	public int locationsEvaluated;
+
+	@Label("Locations Skipped")
+	@Description("Number of locations evaluated before or too close to the last evaluated one to be near an attraction")
+	public int locationsSkipped;
+
+	@Label("Attractions Checked")
+	@Description("Number of location and attraction pairs checked for proximity")
+	public int attractionsChecked;
+
+	@Label("Rewards Added")
+	public int rewardsAdded;
+}
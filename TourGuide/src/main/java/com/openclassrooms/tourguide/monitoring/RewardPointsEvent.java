@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a call to the rewards upstream.
+ */
+@Name("com.openclassrooms.tourguide.RewardPoints")
+@Label("Reward Points")
+@Category({ "TourGuide", "Upstream" })
+@StackTrace(false)
+public class RewardPointsEvent extends Event {
+
+	@Label("User Id")
+	public String userId;
+
+	@Label("Attraction")
+	public String attractionName;
+
+	@Label("Reward Points")
+	public int rewardPoints;
+
+	@Label("Failure")
+	@Description("The exception the upstream call failed with, if any")
+	public String failure;
+}
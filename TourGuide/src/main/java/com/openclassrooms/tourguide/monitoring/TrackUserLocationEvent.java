@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of the tracking of a user, from the GPS call to the reward calculation.
+ */
+@Name("com.openclassrooms.tourguide.TrackUserLocation")
+@Label("Track User Location")
+@Category({ "TourGuide", "Tracking" })
+@StackTrace(false)
+public class TrackUserLocationEvent extends Event {
+
+	@Label("User Id")
+	public String userId;
+
+	@Label("Lane")
+	public String lane;
+
+	@Label("Queue Wait")
+	@Description("Time spent waiting for a thread of the lane")
+	@Timespan(Timespan.NANOSECONDS)
+	public long queueWait;
+
+	@Label("GPS Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long gpsDuration;
+
+	@Label("Rewards Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long rewardsDuration;
+
+	@Label("Visited Locations")
+	@Description("Number of locations of the user once the new one is added")
+	public int visitedLocationCount;
+}
@@ -0,0 +1,29 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a tracking pass over all the users.
+ */
+@Name("com.openclassrooms.tourguide.TrackerCycle")
+@Label("Tracker Cycle")
+@Category({ "TourGuide", "Tracking" })
+@StackTrace(false)
+public class TrackerCycleEvent extends Event {
+
+	@Label("Users")
+	public int userCount;
+
+	@Label("Completed")
+	public int completed;
+
+	@Label("Failed")
+	public int failed;
+
+	@Label("Cancelled")
+	public boolean cancelled;
+}
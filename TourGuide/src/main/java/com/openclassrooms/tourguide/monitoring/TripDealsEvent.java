@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the pricing of the trip deals of a user.
+ */
+@Name("com.openclassrooms.tourguide.TripDeals")
+@Label("Trip Deals")
+@Category({ "TourGuide", "Upstream" })
+@StackTrace(false)
+public class TripDealsEvent extends Event {
+
+	@Label("User Id")
+	public String userId;
+
+	@Label("Cumulative Reward Points")
+	public int rewardPoints;
+
+	@Label("Providers")
+	public int providerCount;
+
+	@Label("Failure")
+	@Description("The exception the upstream call failed with, if any")
+	public String failure;
+}
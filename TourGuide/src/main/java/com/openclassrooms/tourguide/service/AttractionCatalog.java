@@ -0,0 +1,146 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+
+/**
+ * Attractions known to TourGuide, fetched once from the GPS upstream instead of on every use.
+ * <p>
+ * The upstream answers with new attraction ids on every call, keeping one list also keeps the ids,
+ * and so the reward points, stable. Each list has a version, incremented on every refresh.
+ */
+@Service
+public class AttractionCatalog {
+	private Logger logger = LoggerFactory.getLogger(AttractionCatalog.class);
+	private final GpsGateway gpsGateway;
+	private volatile Snapshot snapshot;
+	private final List<CatalogListener> catalogListeners = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	public AttractionCatalog(GpsGateway gpsGateway) {
+		this.gpsGateway = gpsGateway;
+	}
+
+	/**
+	 * Retrieves the attractions, fetching them on first use.
+	 * @return An immutable list of the attractions.
+	 */
+	public List<Attraction> getAttractions() {
+		return snapshot().attractions;
+	}
+
+	/**
+	 * Retrieves the coordinates of the attractions, in the order of getAttractions.
+	 * @return The coordinates of the attractions.
+	 */
+	public AttractionCoordinates getCoordinates() {
+		return snapshot().coordinates;
+	}
+
+	/**
+	 * Retrieves the version of the attractions, fetching them on first use.
+	 * @return The version, incremented on every refresh.
+	 */
+	public long getVersion() {
+		return snapshot().version;
+	}
+
+	/**
+	 * Retrieves the attractions along with their version, fetching them on first use.
+	 * @return The attractions and coordinates of one version.
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot();
+	}
+
+	/**
+	 * Registers a listener notified of every change of the attractions.
+	 * @param catalogListener The listener to register.
+	 */
+	public void addCatalogListener(CatalogListener catalogListener) {
+		catalogListeners.add(catalogListener);
+	}
+
+	/**
+	 * Fetches the attractions from the GPS upstream again.
+	 * When the same attractions are fetched, the current ones, with their ids and version, are kept.
+	 */
+	public synchronized void refresh() {
+		Snapshot current = snapshot;
+		List<Attraction> attractions = gpsGateway.getAttractions();
+		if (current != null && sameAttractions(current.attractions, attractions)) {
+			return;
+		}
+		snapshot = new Snapshot(attractions, current == null ? 1 : current.version + 1);
+		logger.debug("Attraction catalog loaded with " + attractions.size() + " attractions");
+		if (current != null) {
+			catalogListeners.forEach(listener -> listener.onCatalogChanged(current, snapshot));
+		}
+	}
+
+	private static boolean sameAttractions(List<Attraction> attractions, List<Attraction> otherAttractions) {
+		if (attractions.size() != otherAttractions.size()) {
+			return false;
+		}
+		// Compared on what the rewards depend on, the ids changing on every fetch
+		for (int i = 0; i < attractions.size(); i++) {
+			Attraction attraction = attractions.get(i);
+			Attraction otherAttraction = otherAttractions.get(i);
+			if (!attraction.attractionName.equals(otherAttraction.attractionName)
+					|| attraction.latitude != otherAttraction.latitude
+					|| attraction.longitude != otherAttraction.longitude) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					refresh();
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Attractions of one version of the catalog.
+	 */
+	public static class Snapshot {
+		private final List<Attraction> attractions;
+		private final AttractionCoordinates coordinates;
+		private final long version;
+
+		Snapshot(List<Attraction> attractions, long version) {
+			this.attractions = Collections.unmodifiableList(attractions);
+			this.coordinates = new AttractionCoordinates(attractions);
+			this.version = version;
+		}
+
+		public List<Attraction> getAttractions() {
+			return attractions;
+		}
+
+		public AttractionCoordinates getCoordinates() {
+			return coordinates;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+	}
+}
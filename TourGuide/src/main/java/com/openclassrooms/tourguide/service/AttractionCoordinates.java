@@ -0,0 +1,216 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Coordinates of a set of attractions laid out as primitive arrays, to rank them by distance from many locations.
+ * <p>
+ * The sines and cosines of the latitudes and the longitudes in radians are computed once, so ranking the
+ * attractions from a location costs one cosine per attraction. Attractions are ranked on the cosine of the
+ * central angle, which decreases with the distance, and only the k attractions kept get the arc cosine
+ * that turns it into miles. The loop over the arrays is a plain scalar loop the JIT can unroll.
+ * <p>
+ * The attractions are also indexed by latitude, so that looking for those within a distance only goes through
+ * the band of latitudes that distance spans.
+ */
+public class AttractionCoordinates {
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+
+	private final List<Attraction> attractions;
+	private final double[] sinLatitudes;
+	private final double[] cosLatitudes;
+	private final double[] longitudes;
+	// Indexes of the attractions by increasing latitude, and their latitudes in radians
+	private final int[] latitudeOrder;
+	private final double[] sortedLatitudes;
+
+	public AttractionCoordinates(List<Attraction> attractions) {
+		this.attractions = new ArrayList<>(attractions);
+		int count = this.attractions.size();
+		sinLatitudes = new double[count];
+		cosLatitudes = new double[count];
+		longitudes = new double[count];
+		for (int i = 0; i < count; i++) {
+			Attraction attraction = this.attractions.get(i);
+			double latitude = Math.toRadians(attraction.latitude);
+			sinLatitudes[i] = Math.sin(latitude);
+			cosLatitudes[i] = Math.cos(latitude);
+			longitudes[i] = Math.toRadians(attraction.longitude);
+		}
+		double[] latitudes = new double[count];
+		for (int i = 0; i < count; i++) {
+			latitudes[i] = Math.toRadians(this.attractions.get(i).latitude);
+		}
+		latitudeOrder = IntStream.range(0, count).boxed()
+				.sorted((a, b) -> Double.compare(latitudes[a], latitudes[b]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+		sortedLatitudes = new double[count];
+		for (int k = 0; k < count; k++) {
+			sortedLatitudes[k] = latitudes[latitudeOrder[k]];
+		}
+	}
+
+	public int size() {
+		return attractions.size();
+	}
+
+	public Attraction getAttraction(int index) {
+		return attractions.get(index);
+	}
+
+	/**
+	 * Ranks the attractions closest to a location.
+	 * @param location The location.
+	 * @param maxDistance The distance in miles beyond which attractions are left out.
+	 * @param limit The maximum number of attractions to keep.
+	 * @return The kept attractions, closest first.
+	 */
+	public Nearest nearest(Location location, double maxDistance, int limit) {
+		return nearest(location, maxDistance, limit, null);
+	}
+
+	/**
+	 * Ranks the attractions closest to a location among some candidates.
+	 * @param location The location.
+	 * @param maxDistance The distance in miles beyond which attractions are left out.
+	 * @param limit The maximum number of attractions to keep.
+	 * @param candidates The indexes of the attractions to rank, or null to rank them all.
+	 * @return The kept attractions, closest first.
+	 */
+	public Nearest nearest(Location location, double maxDistance, int limit, int[] candidates) {
+		double latitude = Math.toRadians(location.latitude);
+		double sinLatitude = Math.sin(latitude);
+		double cosLatitude = Math.cos(latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double minCosine = Math.cos(Math.min(Math.PI, toAngle(maxDistance)));
+
+		int capacity = Math.max(0, Math.min(limit, attractions.size()));
+		if (capacity == 0) {
+			return new Nearest(new int[0], new double[0], 0);
+		}
+		int[] indexes = new int[capacity];
+		double[] cosines = new double[capacity];
+		int kept = 0;
+		int count = candidates == null ? sinLatitudes.length : candidates.length;
+		for (int c = 0; c < count; c++) {
+			int i = candidates == null ? c : candidates[c];
+			double cosine = sinLatitude * sinLatitudes[i] + cosLatitude * cosLatitudes[i] * Math.cos(longitude - longitudes[i]);
+			if (cosine < minCosine || (kept == capacity && cosine <= cosines[kept - 1])) {
+				continue;
+			}
+			// Insertion into the kept attractions, sorted by decreasing cosine
+			int position = kept == capacity ? kept - 1 : kept++;
+			while (position > 0 && cosines[position - 1] < cosine) {
+				indexes[position] = indexes[position - 1];
+				cosines[position] = cosines[position - 1];
+				position--;
+			}
+			indexes[position] = i;
+			cosines[position] = cosine;
+		}
+
+		double[] distances = new double[kept];
+		for (int i = 0; i < kept; i++) {
+			distances[i] = toMiles(Math.acos(Math.max(-1, Math.min(1, cosines[i]))));
+		}
+		return new Nearest(indexes, distances, kept);
+	}
+
+	/**
+	 * Retrieves the attractions within a distance of a location.
+	 * @param location The location.
+	 * @param maxDistance The distance in miles beyond which attractions are left out.
+	 * @return The indexes of the attractions within the distance, in index order.
+	 */
+	public int[] within(Location location, double maxDistance) {
+		return within(location, -1, maxDistance);
+	}
+
+	/**
+	 * Retrieves the attractions in a ring around a location: further than a distance, and within another.
+	 * @param location The location.
+	 * @param minDistance The distance in miles up to which attractions are left out, negative to keep them all.
+	 * @param maxDistance The distance in miles beyond which attractions are left out.
+	 * @return The indexes of the attractions in the ring, in index order.
+	 */
+	public int[] within(Location location, double minDistance, double maxDistance) {
+		double latitude = Math.toRadians(location.latitude);
+		double sinLatitude = Math.sin(latitude);
+		double cosLatitude = Math.cos(latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double angle = Math.min(Math.PI, toAngle(maxDistance));
+		double minCosine = Math.cos(angle);
+		double maxCosine = minDistance < 0 ? Double.POSITIVE_INFINITY : Math.cos(Math.min(Math.PI, toAngle(minDistance)));
+
+		// The central angle is at least the difference of the latitudes, the band is widened for rounding
+		int from = firstLatitudeFrom(latitude - angle - 1e-9);
+		int to = firstLatitudeFrom(Math.nextUp(latitude + angle + 1e-9));
+		int[] indexes = new int[to - from];
+		int kept = 0;
+		for (int k = from; k < to; k++) {
+			int i = latitudeOrder[k];
+			double cosine = sinLatitude * sinLatitudes[i] + cosLatitude * cosLatitudes[i] * Math.cos(longitude - longitudes[i]);
+			if (cosine >= minCosine && cosine < maxCosine) {
+				indexes[kept++] = i;
+			}
+		}
+		Arrays.sort(indexes, 0, kept);
+		return Arrays.copyOf(indexes, kept);
+	}
+
+	private int firstLatitudeFrom(double latitude) {
+		int low = 0;
+		int high = sortedLatitudes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortedLatitudes[middle] < latitude) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static double toAngle(double miles) {
+		return Math.toRadians(miles / STATUTE_MILES_PER_NAUTICAL_MILE / 60);
+	}
+
+	private static double toMiles(double angle) {
+		return STATUTE_MILES_PER_NAUTICAL_MILE * 60 * Math.toDegrees(angle);
+	}
+
+	/**
+	 * Attractions kept by {@link #nearest}, closest first.
+	 */
+	public static class Nearest {
+		private final int[] indexes;
+		private final double[] distances;
+		private final int size;
+
+		private Nearest(int[] indexes, double[] distances, int size) {
+			this.indexes = indexes;
+			this.distances = distances;
+			this.size = size;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int getIndex(int rank) {
+			return indexes[rank];
+		}
+
+		public double getDistance(int rank) {
+			return distances[rank];
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bulk operation applying an asynchronous task to many items, with at most maxInFlight tasks
+ * submitted and not yet completed at any time.
+ * <p>
+ * Items are only submitted once a previous task completes, so the executors' queues and the futures alive
+ * stay bounded by the window whatever the number of items. Progress can be read while the operation runs,
+ * and cancelling it stops the submissions, letting the tasks in flight complete.
+ *
+ * @param <T> The type of the items.
+ */
+public class BulkTask<T> {
+	private final Logger logger = LoggerFactory.getLogger(BulkTask.class);
+	private final String name;
+	private final Iterable<T> items;
+	private final int total;
+	private final int maxInFlight;
+	private final Function<T, CompletableFuture<?>> task;
+	private final Semaphore window;
+	private final AtomicInteger submitted = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private volatile boolean cancelled;
+
+	/**
+	 * @param name The name of the operation, used in the logs.
+	 * @param items The items to process.
+	 * @param total The number of items, used to report progress.
+	 * @param maxInFlight The maximum number of tasks submitted and not yet completed.
+	 * @param task Submits the task of one item.
+	 */
+	public BulkTask(String name, Iterable<T> items, int total, int maxInFlight,
+			Function<T, CompletableFuture<?>> task) {
+		this.name = name;
+		this.items = items;
+		this.total = total;
+		this.maxInFlight = maxInFlight;
+		this.task = task;
+		this.window = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Submits the items as the window allows, then waits for the tasks in flight to complete.
+	 * Returns early, once the tasks in flight completed, when the operation is cancelled or the thread interrupted.
+	 */
+	public void run() {
+		logger.debug(name + ": starting on " + total + " items, " + maxInFlight + " at a time");
+		boolean interrupted = false;
+		try {
+			Iterator<T> iterator = items.iterator();
+			while (iterator.hasNext() && !cancelled) {
+				window.acquire();
+				if (cancelled) {
+					window.release();
+					break;
+				}
+				submit(iterator.next());
+			}
+		} catch (InterruptedException e) {
+			cancelled = true;
+			interrupted = true;
+		}
+		// Every permit is back once the last task in flight completed, waited for even when interrupted
+		window.acquireUninterruptibly(maxInFlight);
+		window.release(maxInFlight);
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		logger.debug(name + ": " + (cancelled ? "cancelled" : "finished") + " after " + completed.get() + " of "
+				+ total + " items, " + failed.get() + " failed");
+	}
+
+	private void submit(T item) {
+		submitted.incrementAndGet();
+		CompletableFuture<?> future;
+		try {
+			future = task.apply(item);
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		future.whenComplete((result, ex) -> {
+			if (ex != null) {
+				failed.incrementAndGet();
+				logger.warn(name + ": task failed: " + ex.getMessage());
+			}
+			int done = completed.incrementAndGet();
+			if (total >= 10 && done % (total / 10) == 0) {
+				logger.debug(name + ": " + done + " of " + total + " items processed");
+			}
+			window.release();
+		});
+	}
+
+	/**
+	 * Stops submitting items. The tasks in flight are left to complete.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getSubmitted() {
+		return submitted.get();
+	}
+
+	public int getCompleted() {
+		return completed.get();
+	}
+
+	public int getFailed() {
+		return failed.get();
+	}
+}
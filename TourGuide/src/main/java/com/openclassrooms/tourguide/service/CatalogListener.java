@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.service;
+
+/**
+ * Listener notified by the AttractionCatalog each time a refresh changes the attractions.
+ */
+@FunctionalInterface
+public interface CatalogListener {
+
+	/**
+	 * Called once the new attractions are served, on the thread that refreshed the catalog.
+	 * @param previous The attractions served until then.
+	 * @param current The attractions served from now on.
+	 */
+	void onCatalogChanged(AttractionCatalog.Snapshot previous, AttractionCatalog.Snapshot current);
+}
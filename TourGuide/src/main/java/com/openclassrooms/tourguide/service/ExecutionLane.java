@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.service;
+
+/**
+ * Lanes the asynchronous work of the services runs in.
+ * Each lane has its own threads, so user-facing requests never queue behind a bulk tracking pass.
+ */
+public enum ExecutionLane {
+	// Work a user is waiting for, e.g. locating a user without history for a request
+	INTERACTIVE,
+	// Bulk work, e.g. the Tracker pass over all users
+	BACKGROUND
+}
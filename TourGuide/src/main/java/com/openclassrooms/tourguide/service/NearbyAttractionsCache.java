@@ -0,0 +1,211 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import gpsUtil.location.Location;
+
+/**
+ * Candidates of the nearby attractions ranking, shared by the locations of a same cell.
+ * <p>
+ * Locations are grouped in cells of cellDegrees of latitude by cellDegrees of longitude. For a cell, the
+ * attractions ranked from its centre give the candidates of any location within it: a location is at most r
+ * miles from the centre, r being the distance from the centre to its farthest corner, so its k closest
+ * attractions are within d + r of it, d being the distance from the centre to the k-th closest attraction,
+ * hence within d + 2r of the centre. The candidates are the attractions within d + 2r of the centre, and
+ * within the maximum distance plus r, and only them are ranked exactly from the location.
+ * <p>
+ * About maxCells cells are kept, in a concurrent map read without any lock. Beyond that, cells are evicted
+ * the clock way: a hand goes round the cells, sparing once those used since it last passed, and removing the
+ * others. One thread at a time moves the hand, the others carry on, so the count can briefly exceed maxCells.
+ * All the cells are dropped when the attractions change, the cache being tied to the coordinates of one
+ * version of the catalog.
+ */
+public class NearbyAttractionsCache {
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+
+	private final double cellDegrees;
+	private final int maxCells;
+	// Cells of the coordinates of the current catalog, replaced as a whole when they change
+	private volatile Generation generation = new Generation(null);
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param cellDegrees The side of the cells, in degrees.
+	 * @param maxCells The number of cells kept at most, give or take the cells added during an eviction.
+	 */
+	public NearbyAttractionsCache(double cellDegrees, int maxCells) {
+		this.cellDegrees = cellDegrees;
+		this.maxCells = maxCells;
+	}
+
+	/**
+	 * Ranks the attractions closest to a location, as AttractionCoordinates.nearest does, from the candidates
+	 * of its cell.
+	 * @param coordinates The coordinates of the attractions.
+	 * @param location The location.
+	 * @param maxDistance The distance in miles beyond which attractions are left out.
+	 * @param limit The maximum number of attractions to keep.
+	 * @return The kept attractions, closest first.
+	 */
+	public AttractionCoordinates.Nearest nearest(AttractionCoordinates coordinates, Location location,
+			double maxDistance, int limit) {
+		CellKey key = new CellKey((long) Math.floor(location.latitude / cellDegrees),
+				(long) Math.floor(location.longitude / cellDegrees), maxDistance, limit);
+		Generation current = generation;
+		if (current.coordinates != coordinates) {
+			current = new Generation(coordinates);
+			generation = current;
+		}
+		Cell cell = current.cells.get(key);
+		if (cell != null) {
+			hits.increment();
+			cell.use();
+		} else {
+			misses.increment();
+			cell = new Cell(candidatesOf(coordinates, key));
+			if (current.cells.putIfAbsent(key, cell) == null && current.cells.size() > maxCells) {
+				current.evict(maxCells);
+			}
+		}
+		return coordinates.nearest(location, maxDistance, limit, cell.candidates);
+	}
+
+	private int[] candidatesOf(AttractionCoordinates coordinates, CellKey key) {
+		double south = key.latitudeIndex * cellDegrees;
+		double west = key.longitudeIndex * cellDegrees;
+		Location centre = new Location(south + cellDegrees / 2, west + cellDegrees / 2);
+		double radius = 0;
+		for (double latitude : new double[] { south, south + cellDegrees }) {
+			for (double longitude : new double[] { west, west + cellDegrees }) {
+				radius = Math.max(radius, distance(centre, new Location(latitude, longitude)));
+			}
+		}
+		// Margin for the rounding of the distances
+		radius = radius * 1.001 + 1e-6;
+
+		double threshold = key.maxDistance + radius;
+		AttractionCoordinates.Nearest fromCentre = coordinates.nearest(centre, Double.MAX_VALUE, key.limit);
+		if (key.limit > 0 && fromCentre.size() == key.limit) {
+			threshold = Math.min(threshold, fromCentre.getDistance(key.limit - 1) + 2 * radius);
+		}
+		return coordinates.within(centre, threshold);
+	}
+
+	private static double distance(Location location, Location other) {
+		double lat1 = Math.toRadians(location.latitude);
+		double lat2 = Math.toRadians(other.latitude);
+		double cosine = Math.sin(lat1) * Math.sin(lat2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(Math.toRadians(location.longitude - other.longitude));
+		return STATUTE_MILES_PER_NAUTICAL_MILE * 60 * Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, cosine))));
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return generation.cells.size();
+	}
+
+	public double getCellDegrees() {
+		return cellDegrees;
+	}
+
+	public int getMaxCells() {
+		return maxCells;
+	}
+
+	/**
+	 * The cells of one version of the coordinates, with the hand of the clock going round them.
+	 */
+	private static final class Generation {
+		private final AttractionCoordinates coordinates;
+		private final Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+		private final AtomicBoolean evicting = new AtomicBoolean();
+		// Only moved by the thread evicting
+		private Iterator<Cell> hand;
+
+		Generation(AttractionCoordinates coordinates) {
+			this.coordinates = coordinates;
+		}
+
+		void evict(int maxCells) {
+			if (!evicting.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				// Two rounds at most: the first one spares the cells used, the second one finds them unused
+				for (int steps = 2 * cells.size(); steps > 0 && cells.size() > maxCells; steps--) {
+					if (hand == null || !hand.hasNext()) {
+						hand = cells.values().iterator();
+						if (!hand.hasNext()) {
+							return;
+						}
+					}
+					Cell cell = hand.next();
+					if (cell.used) {
+						cell.used = false;
+					} else {
+						hand.remove();
+					}
+				}
+			} finally {
+				evicting.set(false);
+			}
+		}
+	}
+
+	private static final class Cell {
+		private final int[] candidates;
+		private volatile boolean used;
+
+		Cell(int[] candidates) {
+			this.candidates = candidates;
+		}
+
+		void use() {
+			// Read first, so that the cells read over and over are not written to every time
+			if (!used) {
+				used = true;
+			}
+		}
+	}
+
+	private static final class CellKey {
+		private final long latitudeIndex;
+		private final long longitudeIndex;
+		private final double maxDistance;
+		private final int limit;
+
+		CellKey(long latitudeIndex, long longitudeIndex, double maxDistance, int limit) {
+			this.latitudeIndex = latitudeIndex;
+			this.longitudeIndex = longitudeIndex;
+			this.maxDistance = maxDistance;
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof CellKey)) {
+				return false;
+			}
+			CellKey key = (CellKey) other;
+			return latitudeIndex == key.latitudeIndex && longitudeIndex == key.longitudeIndex
+					&& maxDistance == key.maxDistance && limit == key.limit;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(latitudeIndex * 31 + longitudeIndex) * 31 + Double.hashCode(maxDistance) * 17 + limit;
+		}
+	}
+}
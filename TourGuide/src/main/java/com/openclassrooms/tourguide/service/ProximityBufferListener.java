@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.service;
+
+/**
+ * Listener notified by the RewardsService each time its proximity buffer changes.
+ */
+@FunctionalInterface
+public interface ProximityBufferListener {
+
+	/**
+	 * Called once the new buffer is used, on the thread that changed it.
+	 * @param previousBuffer The buffer used until then, in miles.
+	 * @param buffer The buffer used from now on, in miles.
+	 */
+	void onProximityBufferChanged(int previousBuffer, int buffer);
+}
@@ -0,0 +1,140 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Reconciliation of the rewards of many users with a change of the rules, see RewardsService.reconcileRewards.
+ * <p>
+ * The users are split in halves down to USERS_PER_LEAF on a fork-join pool. Progress can be read while the task
+ * runs, the users reconciled per second can be capped so that the upstreams keep serving the tracking, and
+ * cancelling the task stops it before the next user.
+ */
+public class ReconciliationTask {
+	private final Logger logger = LoggerFactory.getLogger(ReconciliationTask.class);
+	private static final int USERS_PER_LEAF = 64;
+	private final RewardsService rewardsService;
+	private final RewardsDelta delta;
+	private final List<User> users;
+	private final long nanosPerUser;
+	// Time from which the next user may be reconciled, when capped
+	private final AtomicLong nextSlot = new AtomicLong();
+	private final AtomicInteger processed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicInteger rewardsGranted = new AtomicInteger();
+	private volatile boolean cancelled;
+
+	/**
+	 * @param rewardsService The service granting the rewards.
+	 * @param delta The change of the rules.
+	 * @param users The users to reconcile.
+	 * @param maxUsersPerSecond The users reconciled per second at most, or 0 for no limit.
+	 */
+	public ReconciliationTask(RewardsService rewardsService, RewardsDelta delta, List<User> users,
+			int maxUsersPerSecond) {
+		this.rewardsService = rewardsService;
+		this.delta = delta;
+		this.users = users;
+		this.nanosPerUser = maxUsersPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxUsersPerSecond : 0;
+	}
+
+	/**
+	 * Reconciles the users on the given pool, waiting for all of them, or for the cancellation.
+	 * @param forkJoinPool The pool the users are reconciled on.
+	 */
+	public void run(ForkJoinPool forkJoinPool) {
+		logger.debug("Rewards reconciliation: starting on " + users.size() + " users, " + delta.getAttractions().size()
+				+ " attractions to compare");
+		nextSlot.set(System.nanoTime());
+		forkJoinPool.invoke(new Slice(0, users.size()));
+		logger.debug("Rewards reconciliation: " + (cancelled ? "cancelled" : "finished") + " after " + processed.get()
+				+ " of " + users.size() + " users, " + rewardsGranted.get() + " rewards granted, " + failed.get()
+				+ " failed");
+	}
+
+	private void reconcile(User user) {
+		if (nanosPerUser > 0) {
+			long slot = nextSlot.getAndAdd(nanosPerUser);
+			long wait;
+			while ((wait = slot - System.nanoTime()) > 0 && !cancelled) {
+				LockSupport.parkNanos(wait);
+			}
+			if (cancelled) {
+				return;
+			}
+		}
+		try {
+			rewardsGranted.addAndGet(rewardsService.reconcileRewards(user, delta));
+		} catch (RuntimeException e) {
+			failed.incrementAndGet();
+			logger.warn("Rewards reconciliation: failed for user " + user.getUserId() + ": " + e.getMessage());
+		}
+		int done = processed.incrementAndGet();
+		if (users.size() >= 10 && done % (users.size() / 10) == 0) {
+			logger.debug("Rewards reconciliation: " + done + " of " + users.size() + " users processed");
+		}
+	}
+
+	/**
+	 * Stops the reconciliation before the next user. The users being reconciled are left to complete.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public RewardsDelta getDelta() {
+		return delta;
+	}
+
+	public int getTotal() {
+		return users.size();
+	}
+
+	public int getProcessed() {
+		return processed.get();
+	}
+
+	public int getFailed() {
+		return failed.get();
+	}
+
+	public int getRewardsGranted() {
+		return rewardsGranted.get();
+	}
+
+	private class Slice extends RecursiveAction {
+		private final int from;
+		private final int to;
+
+		Slice(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > USERS_PER_LEAF) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Slice(from, middle), new Slice(middle, to));
+				return;
+			}
+			for (int i = from; i < to && !cancelled; i++) {
+				reconcile(users.get(i));
+			}
+		}
+	}
+}
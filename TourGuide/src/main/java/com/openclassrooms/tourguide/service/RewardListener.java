@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.service;
+
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Listener notified by the RewardsService each time a user is granted a new reward.
+ */
+@FunctionalInterface
+public interface RewardListener {
+
+	/**
+	 * Called once the reward has been accepted by the user, on the thread that calculated it.
+	 * @param user The rewarded user.
+	 * @param userReward The reward that was added.
+	 */
+	void onRewardAdded(User user, UserReward userReward);
+}
@@ -0,0 +1,148 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Reconciles the rewards of all users in the background as soon as the attraction catalog or the proximity
+ * buffer changes, rather than on their next tracking pass.
+ * <p>
+ * Only the delta of the change is compared with the users' histories: the new attractions, or the ring between
+ * the previous buffer and the new one. The reconciliations run one at a time, in the order of the changes,
+ * each on a fork-join pool of its own and at most maxUsersPerSecond users per second. The catalog is refreshed
+ * every catalogRefreshInterval to notice new attractions.
+ */
+@Service
+public class RewardReconciler implements CatalogListener, ProximityBufferListener {
+	private Logger logger = LoggerFactory.getLogger(RewardReconciler.class);
+	private final RewardsService rewardsService;
+	private final TourGuideService tourGuideService;
+	private final int maxUsersPerSecond;
+
+	private final ForkJoinPool forkJoinPool;
+	// Runs the reconciliations one after the other, and the refreshes of the catalog
+	private final ScheduledExecutorService coordinatorExecutorService = Executors.newSingleThreadScheduledExecutor(
+			new CustomizableThreadFactory("rewards-reconciliation-"));
+	// Incremented by cancel, reconciliations queued before it are skipped
+	private final AtomicLong generation = new AtomicLong();
+	private volatile ReconciliationTask currentTask;
+	private volatile CompletableFuture<Void> lastReconciliation = CompletableFuture.completedFuture(null);
+
+	/**
+	 * @param rewardsService The service granting the rewards, whose buffer and catalog are watched.
+	 * @param tourGuideService The service holding the users.
+	 * @param parallelism The threads reconciling users.
+	 * @param maxUsersPerSecond The users reconciled per second at most, or 0 for no limit.
+	 * @param catalogRefreshInterval How often the catalog is refreshed, or zero to never refresh it.
+	 */
+	public RewardReconciler(RewardsService rewardsService, TourGuideService tourGuideService,
+			@Value("${tourguide.reconciliation.parallelism:4}") int parallelism,
+			@Value("${tourguide.reconciliation.max-users-per-second:0}") int maxUsersPerSecond,
+			@Value("${tourguide.reconciliation.catalog-refresh-interval:0s}") Duration catalogRefreshInterval) {
+		this.rewardsService = rewardsService;
+		this.tourGuideService = tourGuideService;
+		this.maxUsersPerSecond = maxUsersPerSecond;
+		this.forkJoinPool = new ForkJoinPool(parallelism);
+		rewardsService.addProximityBufferListener(this);
+		rewardsService.getAttractionCatalog().addCatalogListener(this);
+		if (!catalogRefreshInterval.isZero()) {
+			long interval = catalogRefreshInterval.toMillis();
+			coordinatorExecutorService.scheduleWithFixedDelay(this::refreshCatalog, interval, interval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void onProximityBufferChanged(int previousBuffer, int buffer) {
+		reconcile(RewardsDelta.bufferChanged(previousBuffer, buffer,
+				rewardsService.getAttractionCatalog().getSnapshot()));
+	}
+
+	@Override
+	public void onCatalogChanged(AttractionCatalog.Snapshot previous, AttractionCatalog.Snapshot current) {
+		reconcile(RewardsDelta.attractionsAdded(previous, current, rewardsService.getProximityBuffer()));
+	}
+
+	/**
+	 * Queues the reconciliation of all users with a change of the rules.
+	 * @param delta The change of the rules.
+	 * @return A future completed once the reconciliation ran, or was cancelled.
+	 */
+	public synchronized CompletableFuture<Void> reconcile(RewardsDelta delta) {
+		long queuedGeneration = generation.get();
+		lastReconciliation = CompletableFuture.runAsync(() -> {
+			if (generation.get() != queuedGeneration) {
+				return;
+			}
+			// Users added meanwhile are calculated with the new rules on their first tracking
+			List<User> users = tourGuideService.getAllUsers();
+			ReconciliationTask task = new ReconciliationTask(rewardsService, delta, users, maxUsersPerSecond);
+			currentTask = task;
+			// Runs even when nothing is new to reward, to carry the evaluation marks over to the new rules
+			task.run(forkJoinPool);
+			currentTask = null;
+		}, coordinatorExecutorService).exceptionally(ex -> {
+			logger.warn("Rewards reconciliation failed: " + ex.getMessage());
+			return null;
+		});
+		return lastReconciliation;
+	}
+
+	/**
+	 * Cancels the reconciliation running, before its next user, and the ones queued.
+	 */
+	public void cancel() {
+		generation.incrementAndGet();
+		ReconciliationTask task = currentTask;
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	/**
+	 * @return The reconciliation running, to read its progress, or null when none is.
+	 */
+	public ReconciliationTask getCurrentTask() {
+		return currentTask;
+	}
+
+	/**
+	 * @return A future completed once the reconciliations queued so far ran.
+	 */
+	public CompletableFuture<Void> getLastReconciliation() {
+		return lastReconciliation;
+	}
+
+	private void refreshCatalog() {
+		try {
+			rewardsService.getAttractionCatalog().refresh();
+		} catch (RuntimeException e) {
+			logger.warn("Attraction catalog refresh failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the reconciliations and the refreshes of the catalog when the application stops.
+	 */
+	@PreDestroy
+	public void shutdownExecutor() {
+		cancel();
+		coordinatorExecutorService.shutdownNow();
+		forkJoinPool.shutdownNow();
+	}
+}
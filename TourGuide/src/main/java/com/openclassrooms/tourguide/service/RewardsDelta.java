@@ -0,0 +1,133 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * What changed in the rewarding rules between two settings: the attractions that may now reward a location
+ * that did not before, with the buffer and catalog version before and after the change.
+ * <p>
+ * Applied to a user by RewardsService.reconcileRewards, it only compares the locations with the attractions
+ * of the delta, instead of calculating the rewards again. For a larger buffer, that is the ring between the
+ * previous buffer and the new one around each location, looked up in the coordinates of the catalog.
+ */
+public class RewardsDelta {
+	// Widens the ring, so that the rounding of the coordinates never leaves out an attraction on its edges
+	private static final double RING_MARGIN_MILES = 1e-3;
+
+	private final int previousBuffer;
+	private final int buffer;
+	private final long previousCatalogVersion;
+	private final AttractionCatalog.Snapshot catalog;
+	private final List<Attraction> attractions;
+	private final boolean allAttractions;
+
+	private RewardsDelta(int previousBuffer, int buffer, long previousCatalogVersion, AttractionCatalog.Snapshot catalog,
+			List<Attraction> attractions, boolean allAttractions) {
+		this.previousBuffer = previousBuffer;
+		this.buffer = buffer;
+		this.previousCatalogVersion = previousCatalogVersion;
+		this.catalog = catalog;
+		this.attractions = attractions;
+		this.allAttractions = allAttractions;
+	}
+
+	/**
+	 * Delta of a change of the proximity buffer: any attraction between the previous buffer and the new one.
+	 * A smaller buffer rewards nothing new, the rewards already earned being kept.
+	 * @param previousBuffer The buffer used until then, in miles.
+	 * @param buffer The buffer used from now on, in miles.
+	 * @param catalog The attractions served.
+	 * @return The delta.
+	 */
+	public static RewardsDelta bufferChanged(int previousBuffer, int buffer, AttractionCatalog.Snapshot catalog) {
+		List<Attraction> attractions = buffer > previousBuffer ? catalog.getAttractions() : List.of();
+		return new RewardsDelta(previousBuffer, buffer, catalog.getVersion(), catalog, attractions, true);
+	}
+
+	/**
+	 * Delta of a refresh of the catalog: the attractions new to it, or moved, within the buffer.
+	 * Removed attractions reward nothing new, the rewards already earned being kept.
+	 * @param previous The attractions served until then.
+	 * @param current The attractions served from now on.
+	 * @param buffer The buffer used, in miles.
+	 * @return The delta.
+	 */
+	public static RewardsDelta attractionsAdded(AttractionCatalog.Snapshot previous, AttractionCatalog.Snapshot current,
+			int buffer) {
+		Set<String> previousAttractions = new HashSet<>();
+		previous.getAttractions().forEach(attraction -> previousAttractions.add(keyOf(attraction)));
+		List<Attraction> added = new ArrayList<>();
+		for (Attraction attraction : current.getAttractions()) {
+			if (!previousAttractions.contains(keyOf(attraction))) {
+				added.add(attraction);
+			}
+		}
+		return new RewardsDelta(buffer, buffer, previous.getVersion(), current, added, false);
+	}
+
+	private static String keyOf(Attraction attraction) {
+		return attraction.attractionName + '@' + attraction.latitude + ',' + attraction.longitude;
+	}
+
+	public int getPreviousBuffer() {
+		return previousBuffer;
+	}
+
+	public int getBuffer() {
+		return buffer;
+	}
+
+	public long getPreviousCatalogVersion() {
+		return previousCatalogVersion;
+	}
+
+	public AttractionCatalog.Snapshot getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @return The attractions that may reward a location that was not rewarded for them before.
+	 */
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	/**
+	 * @return True when the delta holds all the attractions of the catalog, rather than the new ones only.
+	 */
+	public boolean isAllAttractions() {
+		return allAttractions;
+	}
+
+	/**
+	 * Retrieves the attractions of the delta that may reward a location.
+	 * For a change of the buffer, only those within the new buffer, and beyond the previous one when the location
+	 * was evaluated with it, the attractions within it having been rewarded already.
+	 * @param location The location.
+	 * @param evaluatedBefore Whether the location was evaluated with the rules before the change.
+	 * @return The attractions to compare the location with, a superset of those that may reward it.
+	 */
+	public List<Attraction> getAttractionsNear(Location location, boolean evaluatedBefore) {
+		if (!allAttractions || attractions.isEmpty()) {
+			return attractions;
+		}
+		AttractionCoordinates coordinates = catalog.getCoordinates();
+		double minDistance = evaluatedBefore ? previousBuffer - RING_MARGIN_MILES : -1;
+		int[] ring = coordinates.within(location, minDistance, buffer + RING_MARGIN_MILES);
+		List<Attraction> attractionsNear = new ArrayList<>(ring.length);
+		for (int index : ring) {
+			attractionsNear.add(coordinates.getAttraction(index));
+		}
+		return attractionsNear;
+	}
+
+	public boolean isEmpty() {
+		return attractions.isEmpty();
+	}
+}
@@ -0,0 +1,147 @@
+package com.openclassrooms.tourguide.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Exports the rewards of all users as flat rows, one per reward: userName, userId, attractionName, rewardPoints
+ * and timeVisited.
+ * <p>
+ * Users are paged through in the order of their usernames, CHUNK_SIZE at a time. The rows of the next chunks are
+ * rendered on the export threads while the current chunk is written, with at most CHUNKS_AHEAD chunks rendered
+ * and not yet written, so the memory used does not depend on the number of users. Since the rows are ordered by
+ * username, an interrupted export resumes from the userName of the last row received, whose rows are all
+ * exported again.
+ */
+@Service
+public class RewardsExportService {
+	private static final int CHUNK_SIZE = 500;
+	private static final int CHUNKS_AHEAD = 4;
+	private static final String CSV_HEADER = "userName,userId,attractionName,rewardPoints,timeVisited\n";
+
+	public enum Format {
+		NDJSON, CSV
+	}
+
+	private final TourGuideService tourGuideService;
+	private final JsonFactory jsonFactory = new JsonFactory();
+	// Apart from the request threads, so that an export does not hold back the serving of the requests
+	private final ExecutorService exportExecutorService = Executors.newFixedThreadPool(CHUNKS_AHEAD,
+			new CustomizableThreadFactory("rewards-export-"));
+
+	public RewardsExportService(TourGuideService tourGuideService) {
+		this.tourGuideService = tourGuideService;
+	}
+
+	/**
+	 * Writes the rewards of the users from the given one on.
+	 * @param outputStream Where the rows are written.
+	 * @param format The format of the rows.
+	 * @param fromUserName The username the export starts from, inclusive, or null to export all users.
+	 * @throws IOException When the rows could not be written, the chunks being rendered are then cancelled.
+	 */
+	public void export(OutputStream outputStream, Format format, String fromUserName) throws IOException {
+		if (format == Format.CSV) {
+			outputStream.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+		}
+		Deque<CompletableFuture<byte[]>> chunks = new ArrayDeque<>();
+		String cursor = fromUserName;
+		boolean inclusive = true;
+		boolean exhausted = false;
+		try {
+			while (true) {
+				while (!exhausted && chunks.size() < CHUNKS_AHEAD) {
+					List<User> users = tourGuideService.getUsersFrom(cursor, inclusive, CHUNK_SIZE);
+					if (users.size() < CHUNK_SIZE) {
+						exhausted = true;
+					}
+					if (!users.isEmpty()) {
+						cursor = users.get(users.size() - 1).getUserName();
+						inclusive = false;
+						chunks.add(CompletableFuture.supplyAsync(() -> render(users, format), exportExecutorService));
+					}
+				}
+				CompletableFuture<byte[]> chunk = chunks.poll();
+				if (chunk == null) {
+					break;
+				}
+				outputStream.write(chunk.join());
+				outputStream.flush();
+			}
+		} finally {
+			chunks.forEach(chunk -> chunk.cancel(false));
+		}
+	}
+
+	private byte[] render(List<User> users, Format format) {
+		ByteArrayOutputStream rows = new ByteArrayOutputStream();
+		try {
+			if (format == Format.NDJSON) {
+				try (JsonGenerator generator = jsonFactory.createGenerator(rows)) {
+					generator.setRootValueSeparator(null);
+					for (User user : users) {
+						for (UserReward userReward : user.getUserRewards()) {
+							generator.writeStartObject();
+							generator.writeStringField("userName", user.getUserName());
+							generator.writeStringField("userId", user.getUserId().toString());
+							generator.writeStringField("attractionName", userReward.attraction.attractionName);
+							generator.writeNumberField("rewardPoints", userReward.getRewardPoints());
+							generator.writeStringField("timeVisited",
+									userReward.visitedLocation.timeVisited.toInstant().toString());
+							generator.writeEndObject();
+							generator.writeRaw('\n');
+						}
+					}
+				}
+			} else {
+				StringBuilder csv = new StringBuilder();
+				for (User user : users) {
+					for (UserReward userReward : user.getUserRewards()) {
+						csv.append(csvField(user.getUserName())).append(',')
+								.append(user.getUserId()).append(',')
+								.append(csvField(userReward.attraction.attractionName)).append(',')
+								.append(userReward.getRewardPoints()).append(',')
+								.append(userReward.visitedLocation.timeVisited.toInstant()).append('\n');
+					}
+				}
+				rows.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return rows.toByteArray();
+	}
+
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Shuts down the export threads when the application stops.
+	 */
+	@PreDestroy
+	public void shutdownExecutor() {
+		exportExecutorService.shutdownNow();
+	}
+}
@@ -0,0 +1,134 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.tourguide.dto.AttractionRewardStats;
+import com.openclassrooms.tourguide.dto.UserRewardPoints;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Aggregated view of the rewards, maintained incrementally as rewards are granted
+ * so that no query has to go through the users and their reward lists.
+ * <p>
+ * Keeps the total points of each user, the number of rewards and points granted for each attraction,
+ * and a ranking of the users with the most points, bounded to TOP_CAPACITY entries.
+ * Since totals only grow, a user leaving the ranking can only come back by earning more points,
+ * which is when the ranking is checked again, so it always holds the actual top users.
+ */
+@Service
+public class RewardsLeaderboard implements RewardListener {
+	private static final int TOP_CAPACITY = 1000;
+
+	private static final Comparator<UserRewardPoints> BY_POINTS_DESCENDING = Comparator
+			.comparingLong(UserRewardPoints::getTotalRewardPoints).reversed()
+			.thenComparing(UserRewardPoints::getUserId);
+
+	private final Map<UUID, UserPoints> pointsByUser = new ConcurrentHashMap<>();
+	private final Map<String, AttractionStats> statsByAttraction = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListSet<UserRewardPoints> topUsers = new ConcurrentSkipListSet<>(BY_POINTS_DESCENDING);
+
+	public RewardsLeaderboard(RewardsService rewardsService) {
+		rewardsService.addRewardListener(this);
+	}
+
+	@Override
+	public void onRewardAdded(User user, UserReward userReward) {
+		int points = userReward.getRewardPoints();
+
+		AttractionStats attractionStats = statsByAttraction.computeIfAbsent(userReward.attraction.attractionName,
+				AttractionStats::new);
+		attractionStats.rewardCount.increment();
+		attractionStats.totalRewardPoints.add(points);
+
+		UserPoints userPoints = pointsByUser.computeIfAbsent(user.getUserId(),
+				userId -> new UserPoints(userId, user.getUserName()));
+		// Serializes the updates of a user so that the ranking always replaces the entry it holds
+		synchronized (userPoints) {
+			long previousTotal = userPoints.total;
+			userPoints.total += points;
+			updateRanking(userPoints, previousTotal);
+		}
+	}
+
+	private void updateRanking(UserPoints userPoints, long previousTotal) {
+		UserRewardPoints updated = new UserRewardPoints(userPoints.userId, userPoints.userName, userPoints.total);
+		// Fast path: the ranking is full and the user is still below its last entry, so was not in it either
+		if (topUsers.size() >= TOP_CAPACITY && BY_POINTS_DESCENDING.compare(updated, topUsers.last()) > 0) {
+			return;
+		}
+		synchronized (topUsers) {
+			topUsers.remove(new UserRewardPoints(userPoints.userId, userPoints.userName, previousTotal));
+			topUsers.add(updated);
+			if (topUsers.size() > TOP_CAPACITY) {
+				topUsers.pollLast();
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the users with the most reward points.
+	 * @param limit The number of users to return, at most TOP_CAPACITY.
+	 * @return The users and their total points, by decreasing points.
+	 */
+	public List<UserRewardPoints> getTopUsers(int limit) {
+		return topUsers.stream().limit(Math.min(limit, TOP_CAPACITY)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Retrieves the total reward points of a user.
+	 * @param user The user.
+	 * @return The sum of the points of the rewards granted to the user.
+	 */
+	public long getTotalRewardPoints(User user) {
+		UserPoints userPoints = pointsByUser.get(user.getUserId());
+		if (userPoints == null) {
+			return 0;
+		}
+		synchronized (userPoints) {
+			return userPoints.total;
+		}
+	}
+
+	/**
+	 * Retrieves the rewards granted for each attraction.
+	 * @return The statistics of every rewarded attraction, by decreasing number of rewards.
+	 */
+	public List<AttractionRewardStats> getAttractionStats() {
+		return statsByAttraction.values().stream()
+				.map(stats -> new AttractionRewardStats(stats.attractionName, stats.rewardCount.sum(),
+						stats.totalRewardPoints.sum()))
+				.sorted(Comparator.comparingLong(AttractionRewardStats::getRewardCount).reversed())
+				.collect(Collectors.toList());
+	}
+
+	private static class UserPoints {
+		private final UUID userId;
+		private final String userName;
+		private long total;
+
+		UserPoints(UUID userId, String userName) {
+			this.userId = userId;
+			this.userName = userName;
+		}
+	}
+
+	private static class AttractionStats {
+		private final String attractionName;
+		private final LongAdder rewardCount = new LongAdder();
+		private final LongAdder totalRewardPoints = new LongAdder();
+
+		AttractionStats(String attractionName) {
+			this.attractionName = attractionName;
+		}
+	}
+}
@@ -2,9 +2,14 @@ package com.openclassrooms.tourguide.service;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
 
 import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -12,37 +17,98 @@ import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.monitoring.CalculateRewardsEvent;
+import com.openclassrooms.tourguide.monitoring.RewardPointsEvent;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.RewardCentralGateway;
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+import com.openclassrooms.tourguide.user.LocationHistory;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
 @Service
 public class RewardsService {
 	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	private final Logger logger = LoggerFactory.getLogger(RewardsService.class);
 
 	// proximity in miles
 	private int defaultProximityBuffer = 10;
-	private int proximityBuffer = defaultProximityBuffer;
+	private volatile int proximityBuffer = defaultProximityBuffer;
 	private int attractionProximityRange = 10000;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
+	private final AttractionCatalog attractionCatalog;
+	private final RewardsGateway rewardsGateway;
 
-	// Executor service for handling asynchronous reward calculations
-	private final static ExecutorService executorService = Executors.newFixedThreadPool(100);
+	// Executor services for handling asynchronous reward calculations, one per execution lane
+	private final static ExecutorService interactiveExecutorService = Executors.newFixedThreadPool(20,
+			new CustomizableThreadFactory("rewards-interactive-"));
+	private final static ExecutorService backgroundExecutorService = Executors.newFixedThreadPool(100,
+			new CustomizableThreadFactory("rewards-background-"));
+	// Users calculated at a time by a bulk calculation, enough to keep the background threads busy
+	private static final int MAX_REWARDS_IN_FLIGHT = 200;
+
+	// Notified of every reward accepted by a user
+	private final List<RewardListener> rewardListeners = new CopyOnWriteArrayList<>();
+	private final List<ProximityBufferListener> proximityBufferListeners = new CopyOnWriteArrayList<>();
 
 	// Cache for storing distances to attractions
 	private final HashMap<Attraction, Double> allDistances = new HashMap<>();
 
+	// Last location evaluated per user, see EvaluationMark
+	private final ConcurrentHashMap<UUID, EvaluationMark> evaluationMarks = new ConcurrentHashMap<>();
+
+	@Autowired
+	public RewardsService(AttractionCatalog attractionCatalog, RewardsGateway rewardsGateway) {
+		this.attractionCatalog = attractionCatalog;
+		this.rewardsGateway = rewardsGateway;
+	}
+
+	public RewardsService(GpsGateway gpsGateway, RewardsGateway rewardsGateway) {
+		this(new AttractionCatalog(gpsGateway), rewardsGateway);
+	}
+
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(new GpsUtilGateway(gpsUtil), new RewardCentralGateway(rewardCentral));
 	}
 
 	public void setProximityBuffer(int proximityBuffer) {
+		int previousBuffer = this.proximityBuffer;
 		this.proximityBuffer = proximityBuffer;
+		if (previousBuffer != proximityBuffer) {
+			proximityBufferListeners.forEach(listener -> listener.onProximityBufferChanged(previousBuffer, proximityBuffer));
+		}
 	}
 
 	public void setDefaultProximityBuffer() {
-		proximityBuffer = defaultProximityBuffer;
+		setProximityBuffer(defaultProximityBuffer);
+	}
+
+	public int getProximityBuffer() {
+		return proximityBuffer;
+	}
+
+	public AttractionCatalog getAttractionCatalog() {
+		return attractionCatalog;
+	}
+
+	public int getAttractionProximityRange() {
+		return attractionProximityRange;
+	}
+
+	/**
+	 * Registers a listener notified of every reward added to a user by this service.
+	 * @param rewardListener The listener to register.
+	 */
+	public void addRewardListener(RewardListener rewardListener) {
+		rewardListeners.add(rewardListener);
+	}
+
+	/**
+	 * Registers a listener notified of every change of the proximity buffer.
+	 * @param proximityBufferListener The listener to register.
+	 */
+	public void addProximityBufferListener(ProximityBufferListener proximityBufferListener) {
+		proximityBufferListeners.add(proximityBufferListener);
 	}
 
 	/**
@@ -50,7 +116,16 @@ public class RewardsService {
 	 * @param user The user whose rewards are to be calculated.
 	 */
 	public void calculateRewards(User user) {
-		calculateRewardsAsync(user).join();
+		calculateRewards(user, ExecutionLane.INTERACTIVE);
+	}
+
+	/**
+	 * Calculates rewards for a given user in the given lane, waiting for the calculation to complete.
+	 * @param user The user whose rewards are to be calculated.
+	 * @param lane The lane the calculation runs in.
+	 */
+	public void calculateRewards(User user, ExecutionLane lane) {
+		calculateRewardsAsync(user, lane).join();
 	}
 
 	/**
@@ -59,38 +134,167 @@ public class RewardsService {
 	 * @return A CompletableFuture that completes when the calculation is done.
 	 */
 	public CompletableFuture<Void> calculateRewardsAsync(User user) {
+		return calculateRewardsAsync(user, ExecutionLane.INTERACTIVE);
+	}
+
+	/**
+	 * Asynchronously calculates rewards for a given user in the given lane.
+	 * @param user The user for whom rewards are calculated.
+	 * @param lane The lane the calculation runs in.
+	 * @return A CompletableFuture that completes when the calculation is done,
+	 * exceptionally when it failed, for instance on an upstream error.
+	 */
+	public CompletableFuture<Void> calculateRewardsAsync(User user, ExecutionLane lane) {
+		long submittedAt = System.nanoTime();
 		return CompletableFuture.runAsync(() -> {
-			// Convert user visited locations to a thread-safe list
-			// Use of CopyOnWriteArrayList to avoid Concurrence Exception
-			List<VisitedLocation> userLocations = new CopyOnWriteArrayList<>(user.getVisitedLocations());
-			List<Attraction> allAttractions = gpsUtil.getAttractions();
+			CalculateRewardsEvent event = new CalculateRewardsEvent();
+			event.begin();
+			long startedAt = System.nanoTime();
+			int attractionsChecked = 0;
+			int rewardsAdded = 0;
+			int locationsEvaluated = 0;
+			int buffer = proximityBuffer;
+			// Locations counted once, those added meanwhile being left to the next calculation
+			LocationHistory locationHistory = user.getLocationHistory();
+			int locationCount = locationHistory.size();
+			AttractionCatalog.Snapshot catalog = attractionCatalog.getSnapshot();
 
-			for (VisitedLocation visitedLocation : userLocations) {
-				for (Attraction attractionFromList : allAttractions) {
+			// Locations before the mark were evaluated already with the same attractions and buffer
+			EvaluationMark mark = evaluationMarks.get(user.getUserId());
+			if (mark != null && !mark.isValidFor(locationHistory, locationCount, buffer, catalog.getVersion())) {
+				mark = null;
+			}
+			// Only the locations after the mark are decoded
+			int firstUnevaluated = mark == null ? 0 : mark.evaluatedCount;
+			List<VisitedLocation> unevaluatedLocations = locationHistory.toList(firstUnevaluated, locationCount);
+			for (int i = 0; i < unevaluatedLocations.size(); i++) {
+				VisitedLocation visitedLocation = unevaluatedLocations.get(i);
+				// Within the clearance of the mark, no attraction can be within the buffer
+				if (mark != null && mark.isCleared(visitedLocation.location)) {
+					continue;
+				}
+				locationsEvaluated++;
+				double closestDistance = Double.MAX_VALUE;
+				for (Attraction attractionFromList : catalog.getAttractions()) {
 					// Check if the user has already received a reward for this attraction
-					if (user.getUserRewards().stream().noneMatch(r -> r.attraction.attractionName.equals(attractionFromList.attractionName))) {
-						if (nearAttraction(visitedLocation, attractionFromList)) {
-							user.addUserReward(new UserReward(visitedLocation, attractionFromList, getRewardPoints(attractionFromList, user)));
+					if (!user.hasRewardFor(attractionFromList)) {
+						attractionsChecked++;
+						double distance = getDistance(attractionFromList, visitedLocation.location);
+						if (distance <= buffer) {
+							UserReward userReward = new UserReward(visitedLocation, attractionFromList, getRewardPoints(attractionFromList, user));
+							if (user.addUserReward(userReward)) {
+								rewardsAdded++;
+								rewardListeners.forEach(listener -> listener.onRewardAdded(user, userReward));
+							}
+						} else if (!(distance >= closestDistance)) {
+							// A NaN distance makes the clearance NaN, so that nothing is skipped
+							closestDistance = distance;
 						}
 					}
 				}
+				mark = new EvaluationMark(locationHistory, catalog.getVersion(), buffer, visitedLocation.location,
+						closestDistance - buffer, firstUnevaluated + i + 1);
+			}
+			if (mark != null) {
+				evaluationMarks.put(user.getUserId(), mark.evaluatedUpTo(locationCount));
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				event.userId = user.getUserId().toString();
+				event.lane = lane.name();
+				event.queueWait = startedAt - submittedAt;
+				event.locationsEvaluated = locationsEvaluated;
+				event.locationsSkipped = locationCount - locationsEvaluated;
+				event.attractionsChecked = attractionsChecked;
+				event.rewardsAdded = rewardsAdded;
+				event.commit();
+			}
+		}, executorOf(lane)).whenComplete((result, ex) -> {
+			// Logged here, and left in the future for the caller to count or report
+			if (ex != null) {
+				logger.error("Error calculating rewards for user " + user.getUserId() + ": " + ex.getMessage());
 			}
-		}, executorService).exceptionally(ex -> {
-			// Handle exceptions during reward calculation
-			System.err.println("Error calculating rewards for user " + user.getUserId() + ": " + ex.getMessage());
-			return null;
 		});
 	}
 
+	/**
+	 * Grants the rewards a change of the rules brings to a user, comparing the locations with the attractions
+	 * of the delta only: the new ones of a catalog refresh, or those in the ring a larger buffer adds around
+	 * each location.
+	 * <p>
+	 * When the user's evaluation mark was made with the rules before the change, it is carried over to the
+	 * new ones, with its clearance narrowed to the attractions of the delta, so that the next calculation
+	 * resumes after the locations evaluated already instead of scanning them all again.
+	 * @param user The user whose rewards are reconciled.
+	 * @param delta The change of the rules.
+	 * @return The number of rewards granted.
+	 */
+	public int reconcileRewards(User user, RewardsDelta delta) {
+		LocationHistory locationHistory = user.getLocationHistory();
+		int locationCount = locationHistory.size();
+		long catalogVersion = delta.getCatalog().getVersion();
+		int buffer = delta.getBuffer();
+
+		EvaluationMark mark = evaluationMarks.get(user.getUserId());
+		if (mark != null && mark.isValidFor(locationHistory, locationCount, buffer, catalogVersion)) {
+			// Calculated with the new rules already
+			return 0;
+		}
+		boolean upgradable = mark != null && mark.isValidFor(locationHistory, locationCount,
+				delta.getPreviousBuffer(), delta.getPreviousCatalogVersion());
+		// Locations after the mark are left to the next calculation, made with the new rules
+		int reconciledCount = upgradable ? mark.evaluatedCount : locationCount;
+		List<VisitedLocation> userLocations = delta.isEmpty() ? List.of() : locationHistory.toList(0, reconciledCount);
+		int rewardsGranted = 0;
+		for (VisitedLocation visitedLocation : userLocations) {
+			for (Attraction attraction : delta.getAttractionsNear(visitedLocation.location, upgradable)) {
+				if (!user.hasRewardFor(attraction) && getDistance(attraction, visitedLocation.location) <= buffer) {
+					UserReward userReward = new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user));
+					if (user.addUserReward(userReward)) {
+						rewardsGranted++;
+						rewardListeners.forEach(listener -> listener.onRewardAdded(user, userReward));
+					}
+				}
+			}
+		}
+		if (upgradable) {
+			double clearance;
+			if (buffer < delta.getPreviousBuffer()) {
+				// Nothing new within a smaller buffer, the clearance only widens
+				clearance = mark.clearance + delta.getPreviousBuffer() - buffer;
+			} else {
+				// All the attractions give the clearance anew, new ones only narrow the one already known
+				clearance = delta.isAllAttractions() ? Double.MAX_VALUE : mark.clearance;
+				for (Attraction attraction : delta.getAttractions()) {
+					if (!user.hasRewardFor(attraction)) {
+						clearance = Math.min(clearance, getDistance(attraction, mark.location) - buffer);
+					}
+				}
+			}
+			evaluationMarks.replace(user.getUserId(), mark, new EvaluationMark(locationHistory, catalogVersion, buffer,
+					mark.location, clearance, mark.evaluatedCount));
+		}
+		return rewardsGranted;
+	}
+
 	/**
 	 * Calculates rewards for all users asynchronously and waits for completion.
 	 * @param users List of users for whom rewards should be calculated.
 	 */
 	public void calculateAllRewardsUsers(List<User> users) {
-		List<CompletableFuture<Void>> futures = users.stream()
-				.map(this::calculateRewardsAsync)
-				.toList();
-		futures.forEach(CompletableFuture::join);
+		createRewardsTask(users).run();
+	}
+
+	/**
+	 * Prepares the calculation of the rewards of many users, in the background lane.
+	 * Users are submitted as previous ones complete, so that no more than MAX_REWARDS_IN_FLIGHT
+	 * are queued or being calculated at a time.
+	 * @param users The users for whom rewards should be calculated.
+	 * @return The calculation, started by calling run() and stopped by cancel().
+	 */
+	public BulkTask<User> createRewardsTask(List<User> users) {
+		return new BulkTask<>("Rewards calculation", users, users.size(), MAX_REWARDS_IN_FLIGHT,
+				user -> calculateRewardsAsync(user, ExecutionLane.BACKGROUND));
 	}
 
 	/**
@@ -104,16 +308,6 @@ public class RewardsService {
 		return getDistance(attraction, location) <= attractionProximityRange;
 	}
 
-	/**
-	 * Checks if a visited location is near an attraction based on proximity buffer.
-	 * @param visitedLocation The visited location.
-	 * @param attraction The attraction to check against.
-	 * @return True if within the proximity buffer, false otherwise.
-	 */
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return getDistance(attraction, visitedLocation.location) <= proximityBuffer;
-	}
-
 	/**
 	 * Retrieves the reward points for a user visiting a specific attraction.
 	 * @param attraction The attraction.
@@ -121,7 +315,24 @@ public class RewardsService {
 	 * @return The number of reward points earned.
 	 */
 	public int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		RewardPointsEvent event = new RewardPointsEvent();
+		event.begin();
+		try {
+			int rewardPoints = rewardsGateway.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+			event.rewardPoints = rewardPoints;
+			return rewardPoints;
+		} catch (RuntimeException e) {
+			event.failure = e.toString();
+			throw e;
+		} finally {
+			// Failed calls are recorded as well, those are the ones a recording is usually made for
+			event.end();
+			if (event.shouldCommit()) {
+				event.userId = user.getUserId().toString();
+				event.attractionName = attraction.attractionName;
+				event.commit();
+			}
+		}
 	}
 
 	/**
@@ -144,11 +355,20 @@ public class RewardsService {
 		return statuteMiles;
 	}
 
+	private ExecutorService executorOf(ExecutionLane lane) {
+		return lane == ExecutionLane.INTERACTIVE ? interactiveExecutorService : backgroundExecutorService;
+	}
+
 	/**
-	 * Shuts down the executor service gracefully.
+	 * Shuts down the executor services gracefully.
 	 */
 	@PreDestroy
 	public void shutdownExecutor() {
+		shutdown(interactiveExecutorService);
+		shutdown(backgroundExecutorService);
+	}
+
+	private void shutdown(ExecutorService executorService) {
 		executorService.shutdown();
 		try {
 			if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -159,4 +379,51 @@ public class RewardsService {
 			Thread.currentThread().interrupt();
 		}
 	}
+
+	/**
+	 * Where the reward calculation of a user stopped, to resume from there.
+	 * <p>
+	 * Besides the number of locations evaluated, it keeps the last location scanned and its clearance:
+	 * the distance to the closest attraction not rewarded minus the buffer. By the triangle inequality,
+	 * no attraction is within the buffer of a location closer than the clearance to the marked one,
+	 * so the scan of the attractions can be skipped for it. Rewards are only ever added, which can only
+	 * widen the clearance, whereas another catalog or buffer, or a cleared history, invalidates the mark,
+	 * unless reconcileRewards carries it over to the new catalog or buffer.
+	 */
+	private static class EvaluationMark {
+		private final LocationHistory locationHistory;
+		private final long catalogVersion;
+		private final int proximityBuffer;
+		private final Location location;
+		private final double clearance;
+		private final int evaluatedCount;
+
+		EvaluationMark(LocationHistory locationHistory, long catalogVersion, int proximityBuffer, Location location,
+				double clearance, int evaluatedCount) {
+			this.locationHistory = locationHistory;
+			this.catalogVersion = catalogVersion;
+			this.proximityBuffer = proximityBuffer;
+			this.location = location;
+			this.clearance = clearance;
+			this.evaluatedCount = evaluatedCount;
+		}
+
+		boolean isValidFor(LocationHistory locationHistory, int locationCount, int proximityBuffer, long catalogVersion) {
+			return this.locationHistory == locationHistory && evaluatedCount <= locationCount
+					&& this.proximityBuffer == proximityBuffer && this.catalogVersion == catalogVersion;
+		}
+
+		boolean isCleared(Location other) {
+			double lat1 = Math.toRadians(location.latitude);
+			double lat2 = Math.toRadians(other.latitude);
+			double cosine = Math.sin(lat1) * Math.sin(lat2)
+					+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(Math.toRadians(location.longitude - other.longitude));
+			double angle = Math.acos(Math.max(-1, Math.min(1, cosine)));
+			return STATUTE_MILES_PER_NAUTICAL_MILE * 60 * Math.toDegrees(angle) < clearance;
+		}
+
+		EvaluationMark evaluatedUpTo(int evaluatedCount) {
+			return new EvaluationMark(locationHistory, catalogVersion, proximityBuffer, location, clearance, evaluatedCount);
+		}
+	}
 }
@@ -0,0 +1,218 @@
+package com.openclassrooms.tourguide.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Pushes the rewards of users to the clients subscribed to them, as Server-Sent Events.
+ * <p>
+ * The id of an event is the position of the reward in the rewards of the user, starting at 1. Since rewards
+ * are only ever appended, a subscriber only keeps the position of the next reward to send: the rewards of
+ * the user are its buffer, whatever the number of rewards pending, and a client reconnecting with the id of
+ * the last event it received gets the following ones replayed from there.
+ * <p>
+ * Idle subscribers hold no thread. A new reward only schedules the subscribers of its user on a few sender
+ * threads, at most once each at a time, and a sender sends at most MAX_EVENTS_PER_SEND events to a subscriber
+ * before giving the others their turn.
+ * <p>
+ * A send blocks while the client does not read. A watchdog evicts the subscribers whose send has been blocked
+ * for SEND_TIMEOUT_MILLIS, interrupting their sender, and adds a sender thread for each send still blocked,
+ * so that slow clients never hold the threads the other streams are sent with.
+ */
+@Service
+public class RewardsStreamService implements RewardListener {
+	private Logger logger = LoggerFactory.getLogger(RewardsStreamService.class);
+	// Clients reconnect after that, with the id of the last event they received
+	private static final long SUBSCRIPTION_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	private static final int MAX_EVENTS_PER_SEND = 64;
+	private static final int SENDER_THREADS = 4;
+	private static final long SEND_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+	// Core threads added while sends of evicted subscribers are still blocked
+	private final ThreadPoolExecutor senderExecutorService = new ThreadPoolExecutor(SENDER_THREADS, Integer.MAX_VALUE,
+			1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("rewards-stream-"));
+	private final ScheduledExecutorService watchdogExecutorService = Executors.newSingleThreadScheduledExecutor(
+			new CustomizableThreadFactory("rewards-stream-watchdog-"));
+	private int blockedSends;
+	private final Map<UUID, List<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+
+	public RewardsStreamService(RewardsService rewardsService) {
+		rewardsService.addRewardListener(this);
+		watchdogExecutorService.scheduleWithFixedDelay(this::evictBlockedSubscribers, SEND_TIMEOUT_MILLIS / 2,
+				SEND_TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Subscribes to the rewards of a user.
+	 * @param user The user whose rewards are streamed.
+	 * @param lastEventId The id of the last event received, to replay the following rewards,
+	 * or null to only receive the rewards added from now on.
+	 * @return The emitter of the events, to return from the controller.
+	 */
+	public SseEmitter subscribe(User user, Long lastEventId) {
+		int rewardCount = user.getUserRewards().size();
+		int nextReward = lastEventId == null ? rewardCount : (int) Math.max(0, Math.min(lastEventId, rewardCount));
+		Subscriber subscriber = new Subscriber(user, new SseEmitter(SUBSCRIPTION_TIMEOUT_MILLIS), nextReward);
+		subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+		subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+		subscriber.emitter.onError(ex -> unsubscribe(subscriber));
+		// Added within the map operation, so that an unsubscription cannot drop the list in between
+		subscribersByUser.compute(user.getUserId(), (userId, subscribers) -> {
+			List<Subscriber> updated = subscribers == null ? new CopyOnWriteArrayList<>() : subscribers;
+			updated.add(subscriber);
+			return updated;
+		});
+		// Replays the rewards missed, and catches up with any added while subscribing
+		schedule(subscriber);
+		return subscriber.emitter;
+	}
+
+	@Override
+	public void onRewardAdded(User user, UserReward userReward) {
+		List<Subscriber> subscribers = subscribersByUser.get(user.getUserId());
+		if (subscribers != null) {
+			subscribers.forEach(this::schedule);
+		}
+	}
+
+	public int getSubscriberCount() {
+		return subscribersByUser.values().stream().mapToInt(List::size).sum();
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+			senderExecutorService.execute(() -> send(subscriber));
+		}
+	}
+
+	private void send(Subscriber subscriber) {
+		List<UserReward> rewards = subscriber.user.getUserRewards();
+		try {
+			int sent = 0;
+			while (subscriber.nextReward < rewards.size() && sent < MAX_EVENTS_PER_SEND && !subscriber.closed) {
+				UserReward userReward = rewards.get(subscriber.nextReward);
+				synchronized (subscriber) {
+					subscriber.sender = Thread.currentThread();
+					subscriber.sendStartedAt = System.nanoTime();
+				}
+				try {
+					subscriber.emitter.send(SseEmitter.event()
+							.id(String.valueOf(subscriber.nextReward + 1))
+							.name("reward")
+							.data(userReward, MediaType.APPLICATION_JSON));
+				} finally {
+					// Past this block, the watchdog no longer interrupts this thread for the subscriber
+					synchronized (subscriber) {
+						subscriber.sender = null;
+					}
+					if (subscriber.evicted) {
+						Thread.interrupted();
+						adjustSenderThreads(-1);
+					}
+				}
+				subscriber.nextReward++;
+				sent++;
+			}
+			if (subscriber.evicted) {
+				throw new IllegalStateException("Send blocked for more than " + SEND_TIMEOUT_MILLIS + " ms");
+			}
+		} catch (IOException | IllegalStateException e) {
+			// The client went away or does not read, it replays what it missed when it reconnects
+			logger.debug("Rewards stream of user " + subscriber.user.getUserName() + " closed: " + e.getMessage());
+			subscriber.emitter.completeWithError(e);
+			unsubscribe(subscriber);
+			return;
+		} finally {
+			subscriber.scheduled.set(false);
+		}
+		// Rewards added while sending, or beyond MAX_EVENTS_PER_SEND
+		if (subscriber.nextReward < subscriber.user.getUserRewards().size()) {
+			schedule(subscriber);
+		}
+	}
+
+	/**
+	 * Evicts the subscribers whose send is blocked since SEND_TIMEOUT_MILLIS, and interrupts their sender.
+	 * The emitter is left to the sender, which holds its lock while blocked, to complete once the send returns.
+	 */
+	private void evictBlockedSubscribers() {
+		long now = System.nanoTime();
+		subscribersByUser.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+			synchronized (subscriber) {
+				if (subscriber.sender != null && !subscriber.evicted
+						&& now - subscriber.sendStartedAt > TimeUnit.MILLISECONDS.toNanos(SEND_TIMEOUT_MILLIS)) {
+					logger.warn("Rewards stream of user " + subscriber.user.getUserName() + " evicted, its send is blocked");
+					subscriber.evicted = true;
+					adjustSenderThreads(1);
+					subscriber.sender.interrupt();
+				}
+			}
+			if (subscriber.evicted) {
+				unsubscribe(subscriber);
+			}
+		}));
+	}
+
+	private synchronized void adjustSenderThreads(int delta) {
+		blockedSends += delta;
+		senderExecutorService.setCorePoolSize(SENDER_THREADS + blockedSends);
+	}
+
+	private void unsubscribe(Subscriber subscriber) {
+		subscriber.closed = true;
+		subscribersByUser.computeIfPresent(subscriber.user.getUserId(), (userId, subscribers) -> {
+			subscribers.remove(subscriber);
+			return subscribers.isEmpty() ? null : subscribers;
+		});
+	}
+
+	/**
+	 * Completes the streams and shuts down the sender threads when the application stops.
+	 */
+	@PreDestroy
+	public void shutdownExecutor() {
+		watchdogExecutorService.shutdownNow();
+		subscribersByUser.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+		senderExecutorService.shutdownNow();
+	}
+
+	private static class Subscriber {
+		private final User user;
+		private final SseEmitter emitter;
+		// Position of the next reward to send, only updated by the sender scheduled
+		private volatile int nextReward;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private volatile boolean closed;
+		// Thread blocked in a send and since when, guarded by the subscriber
+		private Thread sender;
+		private long sendStartedAt;
+		private volatile boolean evicted;
+
+		Subscriber(User user, SseEmitter emitter, int nextReward) {
+			this.user = user;
+			this.emitter = emitter;
+			this.nextReward = nextReward;
+		}
+	}
+}
@@ -1,21 +1,39 @@
 package com.openclassrooms.tourguide.service;
 
 import com.openclassrooms.tourguide.dto.AttractionDistanceFromUser;
+import com.openclassrooms.tourguide.dto.NearbyAttractionsFromLocation;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.monitoring.TrackUserLocationEvent;
+import com.openclassrooms.tourguide.monitoring.TripDealsEvent;
 import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
+import com.openclassrooms.tourguide.user.LocationHistory;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -29,17 +47,39 @@ import tripPricer.TripPricer;
 @Service
 public class TourGuideService {
 	private Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final GpsGateway gpsGateway;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final TripPricingGateway tripPricingGateway;
 	public final Tracker tracker;
 	boolean testMode = true;
-	// Thread pool for handling multiple user tracking requests concurrently
-	private final static ExecutorService executorService = Executors.newFixedThreadPool(100);
-
-	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+	// Thread pools for handling multiple user tracking requests concurrently, one per execution lane,
+	// so that requests of users keep reserved threads while the Tracker goes through all users
+	private final static ExecutorService interactiveExecutorService = Executors.newFixedThreadPool(20,
+			new CustomizableThreadFactory("tracking-interactive-"));
+	private final static ExecutorService backgroundExecutorService = Executors.newFixedThreadPool(100,
+			new CustomizableThreadFactory("tracking-background-"));
+	// Users tracked at a time by a bulk tracking, enough to keep the background threads busy
+	private static final int MAX_TRACKING_IN_FLIGHT = 200;
+	// Instants a location history can hold, its times being kept in epoch milliseconds
+	private static final Instant FIRST_EPOCH_MILLI = Instant.ofEpochMilli(Long.MIN_VALUE);
+	private static final Instant LAST_EPOCH_MILLI = Instant.ofEpochMilli(Long.MAX_VALUE);
+	// Tracking in flight per user, joined by concurrent callers
+	private final ConcurrentHashMap<UUID, Tracking> trackingsInFlight = new ConcurrentHashMap<>();
+	private final LongAdder sharedTrackings = new LongAdder();
+	// Expired locations of the batches refreshed at a time, the others being left to a later batch or to the Tracker
+	private final Semaphore batchRefreshWindow = new Semaphore(MAX_TRACKING_IN_FLIGHT);
+	// Freshness policy of the locations, see getUserLocationAsync
+	private volatile Duration locationMaxAge = Duration.ofMinutes(5);
+	private volatile Duration locationStaleWhileRevalidate = Duration.ofHours(1);
+	// Candidates of the nearby attractions of the locations of a same cell
+	private volatile NearbyAttractionsCache nearbyAttractionsCache = new NearbyAttractionsCache(0.01, 50_000);
+
+	@Autowired
+	public TourGuideService(GpsGateway gpsGateway, RewardsService rewardsService,
+			TripPricingGateway tripPricingGateway) {
+		this.gpsGateway = gpsGateway;
 		this.rewardsService = rewardsService;
+		this.tripPricingGateway = tripPricingGateway;
 
 		Locale.setDefault(Locale.US);
 
@@ -49,44 +89,153 @@ public class TourGuideService {
 			initializeInternalUsers();
 			logger.debug("Finished initializing users");
 		}
+		// Started once the application is ready, see startTracking
 		tracker = new Tracker(this);
 		addShutDownHook();
 	}
 
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
+		this(new GpsUtilGateway(gpsUtil), rewardsService, new TripPricerGateway(new TripPricer()));
+	}
+
+	/**
+	 * Starts the Tracker when the application starts accepting traffic, that is after the warm-up,
+	 * so that tracking passes do not compete with it.
+	 * @param event The change of the readiness of the application.
+	 */
+	@EventListener
+	public void startTracking(AvailabilityChangeEvent<ReadinessState> event) {
+		if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+			logger.debug("Application ready, starting the tracker");
+			tracker.startTracking();
+		}
+	}
+
 	public List<UserReward> getUserRewards(User user) {
 		return user.getUserRewards();
 	}
 
 	/**
-	 * Retrieves the last known location of the user.
-	 * If the user has no recorded location, it tracks a new location.
+	 * Sets how long a known location is served as is, then served while being refreshed in the background.
+	 * @param locationMaxAge The age up to which the last known location is served as is.
+	 * @param locationStaleWhileRevalidate How long after the max-age it is still served, while refreshed.
+	 */
+	public void setLocationFreshness(Duration locationMaxAge, Duration locationStaleWhileRevalidate) {
+		this.locationMaxAge = locationMaxAge;
+		this.locationStaleWhileRevalidate = locationStaleWhileRevalidate;
+	}
+
+	@Value("${tourguide.location.max-age:5m}")
+	void setLocationMaxAge(Duration locationMaxAge) {
+		this.locationMaxAge = locationMaxAge;
+	}
+
+	@Value("${tourguide.location.stale-while-revalidate:1h}")
+	void setLocationStaleWhileRevalidate(Duration locationStaleWhileRevalidate) {
+		this.locationStaleWhileRevalidate = locationStaleWhileRevalidate;
+	}
+
+	@Value("${tourguide.nearby-cache.cell-degrees:0.01}")
+	void setNearbyCacheCellDegrees(double cellDegrees) {
+		nearbyAttractionsCache = new NearbyAttractionsCache(cellDegrees, nearbyAttractionsCache.getMaxCells());
+	}
+
+	@Value("${tourguide.nearby-cache.max-cells:50000}")
+	void setNearbyCacheMaxCells(int maxCells) {
+		nearbyAttractionsCache = new NearbyAttractionsCache(nearbyAttractionsCache.getCellDegrees(), maxCells);
+	}
+
+	public NearbyAttractionsCache getNearbyAttractionsCache() {
+		return nearbyAttractionsCache;
+	}
+
+	/**
+	 * Retrieves the location of the user, fresh enough according to the default max-age.
+	 * @see #getUserLocationAsync(User, Duration)
 	 *
 	 * @param user The user whose location is retrieved.
-	 * @return The last visited location of the user.
+	 * @return The location of the user.
 	 */
 	public VisitedLocation getUserLocation(User user) {
-		VisitedLocation visitedLocation = (user.getVisitedLocations().size() > 0) ? user.getLastVisitedLocation()
-				: trackUserLocation(user);
-		return visitedLocation;
+		return getUserLocation(user, locationMaxAge);
 	}
 
 	/**
-	 * Retrieves the user's last known location asynchronously.
-	 * If no location exists, a new tracking process starts.
+	 * Retrieves the location of the user, fresh enough according to the given max-age.
+	 * @see #getUserLocationAsync(User, Duration)
+	 *
+	 * @param user The user whose location is retrieved.
+	 * @param maxAge The age up to which the last known location is served as is.
+	 * @return The location of the user.
+	 */
+	public VisitedLocation getUserLocation(User user, Duration maxAge) {
+		return getUserLocationAsync(user, maxAge).join();
+	}
+
+	/**
+	 * Retrieves the location of the user asynchronously, fresh enough according to the default max-age.
+	 * @see #getUserLocationAsync(User, Duration)
 	 *
 	 * @param user The user whose location is needed.
 	 * @return A CompletableFuture containing the visited location.
 	 */
 	public CompletableFuture<VisitedLocation> getUserLocationAsync(User user) {
-		if (user.getVisitedLocations().size() > 0) {
-			// Retourne le dernier emplacement visité dans un CompletableFuture
-			return CompletableFuture.completedFuture(user.getLastVisitedLocation());
-		} else {
-			// Appelle la méthode asynchrone pour suivre la localisation de l'utilisateur
+		return getUserLocationAsync(user, locationMaxAge);
+	}
+
+	/**
+	 * Retrieves the location of the user asynchronously, fresh enough according to the given max-age.
+	 * The last known location is returned as is up to the max-age. Past it and within the stale-while-revalidate
+	 * window, it is still returned right away, while a tracking refreshes it in the background.
+	 * Beyond that window, or without any known location, the user is tracked and the new location returned.
+	 *
+	 * @param user The user whose location is needed.
+	 * @param maxAge The age up to which the last known location is served as is.
+	 * @return A CompletableFuture containing the visited location.
+	 */
+	public CompletableFuture<VisitedLocation> getUserLocationAsync(User user, Duration maxAge) {
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		if (lastVisitedLocation == null) {
 			return trackUserLocationAsync(user);
 		}
+		Duration age = Duration.between(lastVisitedLocation.timeVisited.toInstant(), Instant.now());
+		if (age.compareTo(maxAge) <= 0) {
+			return CompletableFuture.completedFuture(lastVisitedLocation);
+		}
+		if (age.compareTo(maxAge.plus(locationStaleWhileRevalidate)) <= 0) {
+			// Joins the tracking of the user already in flight, if any
+			trackUserLocationAsync(user, ExecutionLane.BACKGROUND).exceptionally(ex -> {
+				logger.warn("Failed to refresh the location of user " + user.getUserName() + ": " + ex.getMessage());
+				return null;
+			});
+			return CompletableFuture.completedFuture(lastVisitedLocation);
+		}
+		return trackUserLocationAsync(user);
+	}
+
+
+	/**
+	 * Goes through the locations a user visited within a time range, one at a time,
+	 * without building the list of them. Bounds beyond the instants of epoch milliseconds are clamped to them.
+	 *
+	 * @param user The user whose history is read.
+	 * @param from The start of the range, inclusive.
+	 * @param to The end of the range, inclusive.
+	 * @param consumer Receives the time and coordinates of each location of the range.
+	 */
+	public void forEachVisitedLocation(User user, Instant from, Instant to, LocationHistory.LocationConsumer consumer) {
+		user.getLocationHistory().forEach(toEpochMilli(from), toEpochMilli(to), consumer);
 	}
 
+	private static long toEpochMilli(Instant instant) {
+		if (instant.isAfter(LAST_EPOCH_MILLI)) {
+			return Long.MAX_VALUE;
+		}
+		if (instant.isBefore(FIRST_EPOCH_MILLI)) {
+			return Long.MIN_VALUE;
+		}
+		return instant.toEpochMilli();
+	}
 
 	public User getUser(String userName) {
 		return internalUserMap.get(userName);
@@ -96,10 +245,26 @@ public class TourGuideService {
 		return internalUserMap.values().stream().collect(Collectors.toList());
 	}
 
-	public void addUser(User user) {
-		if (!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
-		}
+	/**
+	 * Retrieves a page of users, in the order of their usernames, to go through all of them a page at a time.
+	 * @param fromUserName The username the page starts from, or null to start from the first user.
+	 * @param inclusive Whether the page includes the user named fromUserName.
+	 * @param limit The maximum number of users of the page.
+	 * @return The users following fromUserName, ordered by username.
+	 */
+	public List<User> getUsersFrom(String fromUserName, boolean inclusive, int limit) {
+		NavigableMap<String, User> users = fromUserName == null ? internalUserMap
+				: internalUserMap.tailMap(fromUserName, inclusive);
+		return users.values().stream().limit(limit).collect(Collectors.toList());
+	}
+
+	/**
+	 * Adds a user, unless one with the same username exists already.
+	 * @param user The user to add.
+	 * @return True if the user was added, false if the username was taken.
+	 */
+	public boolean addUser(User user) {
+		return internalUserMap.putIfAbsent(user.getUserName(), user) == null;
 	}
 
 	/**
@@ -109,12 +274,28 @@ public class TourGuideService {
 	 * @return A list of travel providers with pricing.
 	 */
 	public List<Provider> getTripDeals(User user) {
+		TripDealsEvent event = new TripDealsEvent();
+		event.begin();
 		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(i -> i.getRewardPoints()).sum();
-		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(),
-				user.getUserPreferences().getNumberOfAdults(), user.getUserPreferences().getNumberOfChildren(),
-				user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
-		user.setTripDeals(providers);
-		return providers;
+		event.rewardPoints = cumulatativeRewardPoints;
+		try {
+			List<Provider> providers = tripPricingGateway.getPrice(tripPricerApiKey, user.getUserId(),
+					user.getUserPreferences().getNumberOfAdults(), user.getUserPreferences().getNumberOfChildren(),
+					user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
+			user.setTripDeals(providers);
+			event.providerCount = providers.size();
+			return providers;
+		} catch (RuntimeException e) {
+			event.failure = e.toString();
+			throw e;
+		} finally {
+			// Failed pricings are recorded as well, with the exception they failed with
+			event.end();
+			if (event.shouldCommit()) {
+				event.userId = user.getUserId().toString();
+				event.commit();
+			}
+		}
 	}
 
 	/**
@@ -138,32 +319,136 @@ public class TourGuideService {
 	 * @return A CompletableFuture containing the visited location.
 	 */
 	public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+		return trackUserLocationAsync(user, ExecutionLane.INTERACTIVE);
+	}
 
-		return CompletableFuture.supplyAsync(() -> {
-			// Retrieve the user's current location from GPS service
-			VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-			// Add the new location to the user's visited locations
-			user.addToVisitedLocations(visitedLocation);
-			// Calculate rewards based on nearby attractions
-			rewardsService.calculateRewards(user);
-			return visitedLocation;
-		},executorService
-		);
+	/**
+	 * Tracks the user's location asynchronously in the given lane.
+	 * The rewards are calculated in the same lane.
+	 * A tracking of the user already in flight, from a request or the Tracker, is joined instead of starting
+	 * another one, so that concurrent callers share one GPS call, location and reward calculation.
+	 * An interactive caller joining a background tracking that has not started yet also submits it to the
+	 * interactive lane, the first lane to reach it running it, so that it does not wait behind the Tracker.
+	 *
+	 * @param user The user whose location will be tracked.
+	 * @param lane The lane the tracking runs in, unless an in-flight tracking is joined.
+	 * @return A CompletableFuture containing the visited location.
+	 */
+	public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user, ExecutionLane lane) {
+		Tracking tracking = trackingsInFlight.get(user.getUserId());
+		if (tracking == null) {
+			Tracking newTracking = new Tracking(lane);
+			tracking = trackingsInFlight.putIfAbsent(user.getUserId(), newTracking);
+			if (tracking == null) {
+				submitTracking(user, newTracking, lane);
+				// A copy, so that no caller can complete or cancel the tracking shared with the others
+				return newTracking.location.copy();
+			}
+		}
+		sharedTrackings.increment();
+		if (lane == ExecutionLane.INTERACTIVE && tracking.lane == ExecutionLane.BACKGROUND
+				&& !tracking.started.get() && tracking.promoted.compareAndSet(false, true)) {
+			submitTracking(user, tracking, ExecutionLane.INTERACTIVE);
+		}
+		return tracking.location.copy();
+	}
+
+	/**
+	 * Retrieves the number of trackings that joined one already in flight for the same user.
+	 * @return The number of trackings shared since the start.
+	 */
+	public long getSharedTrackings() {
+		return sharedTrackings.sum();
 	}
 
 	/**
-	 * Tracks the location of all users asynchronously.
+	 * Records a location reported for a user rather than asked to the GPS upstream, such as a replayed one,
+	 * and calculates the rewards it brings.
+	 * @param user The user who visited the location.
+	 * @param visitedLocation The location visited.
+	 * @param lane The lane the rewards are calculated in.
+	 * @return A CompletableFuture completed once the rewards are calculated.
+	 */
+	public CompletableFuture<Void> recordUserLocation(User user, VisitedLocation visitedLocation, ExecutionLane lane) {
+		user.addToVisitedLocations(visitedLocation);
+		return rewardsService.calculateRewardsAsync(user, lane);
+	}
+
+	/**
+	 * Submits a tracking to a lane, where it runs unless another lane started it already.
+	 */
+	private void submitTracking(User user, Tracking tracking, ExecutionLane lane) {
+		long submittedAt = System.nanoTime();
+		executorOf(lane).execute(() -> {
+			if (!tracking.started.compareAndSet(false, true)) {
+				return;
+			}
+			VisitedLocation visitedLocation;
+			try {
+				visitedLocation = locateAndReward(user, lane, submittedAt);
+			} catch (Throwable ex) {
+				trackingsInFlight.remove(user.getUserId(), tracking);
+				tracking.location.completeExceptionally(ex);
+				return;
+			}
+			// Removed first, so that callers arriving once it completes get a fresh location
+			trackingsInFlight.remove(user.getUserId(), tracking);
+			tracking.location.complete(visitedLocation);
+		});
+	}
+
+	private VisitedLocation locateAndReward(User user, ExecutionLane lane, long submittedAt) {
+		TrackUserLocationEvent event = new TrackUserLocationEvent();
+		event.begin();
+		long startedAt = System.nanoTime();
+		// Retrieve the user's current location from GPS service
+		VisitedLocation visitedLocation = gpsGateway.getUserLocation(user.getUserId());
+		long locatedAt = System.nanoTime();
+		// Add the new location to the user's visited locations
+		user.addToVisitedLocations(visitedLocation);
+		// Calculate rewards based on nearby attractions, the location being returned even if they fail,
+		// the locations left unevaluated are evaluated again by the next calculation
+		try {
+			rewardsService.calculateRewards(user, lane);
+		} catch (CompletionException e) {
+			logger.warn("Rewards of user " + user.getUserName() + " not calculated at their new location: "
+					+ e.getCause().getMessage());
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.userId = user.getUserId().toString();
+			event.lane = lane.name();
+			event.queueWait = startedAt - submittedAt;
+			event.gpsDuration = locatedAt - startedAt;
+			event.rewardsDuration = System.nanoTime() - locatedAt;
+			event.visitedLocationCount = user.getVisitedLocationCount();
+			event.commit();
+		}
+		return visitedLocation;
+	}
+
+	/**
+	 * Tracks the location of all users asynchronously, in the background lane,
+	 * and waits for all of them to be tracked.
 	 *
 	 * @param allUsers List of all users to be tracked.
 	 */
 	public void trackAllUsersLocation(List<User> allUsers)
 	{
-		List<CompletableFuture<VisitedLocation>> completableFutureUserList = allUsers.stream().
-				map(this::trackUserLocationAsync).
-				toList();
-		// Wait for all tracking tasks to complete
-		completableFutureUserList.forEach(CompletableFuture::join);
+		createTrackingTask(allUsers).run();
+	}
 
+	/**
+	 * Prepares the tracking of the location of many users, in the background lane.
+	 * Users are submitted as previous ones complete, so that no more than MAX_TRACKING_IN_FLIGHT
+	 * are queued or being tracked at a time.
+	 *
+	 * @param users The users to be tracked.
+	 * @return The tracking operation, started by calling run() and stopped by cancel().
+	 */
+	public BulkTask<User> createTrackingTask(List<User> users) {
+		return new BulkTask<>("Tracking", users, users.size(), MAX_TRACKING_IN_FLIGHT,
+				user -> trackUserLocationAsync(user, ExecutionLane.BACKGROUND));
 	}
 
 
@@ -176,24 +461,69 @@ public class TourGuideService {
 	 * @return A sorted list of attractions by distance.
 	 */
 	public List<AttractionDistanceFromUser> getNearByAttractions(User user, VisitedLocation visitedLocation, int numberOfNearbyAttraction) {
+		AttractionCoordinates attractionCoordinates = rewardsService.getAttractionCatalog().getCoordinates();
+		return getNearByAttractions(attractionCoordinates, user, visitedLocation, numberOfNearbyAttraction);
+	}
 
-		List<AttractionDistanceFromUser> nearbyAttractions = new ArrayList<>();
-		for (Attraction attraction : gpsUtil.getAttractions()) {
-			if (rewardsService.isWithinAttractionProximity(attraction, visitedLocation.location)) {
-				double distance = rewardsService.getDistance(attraction, visitedLocation.location);
-				AttractionDistanceFromUser attractionDistanceFromUser = new AttractionDistanceFromUser(attraction,user,distance);
-				nearbyAttractions.add(attractionDistanceFromUser);
+	/**
+	 * Retrieves the closest attractions of many users at once.
+	 * The attractions are ranked from each user's last known location, whatever its age, so that a batch never
+	 * waits for the users it can answer. Locations older than the max-age are refreshed in the background lane,
+	 * no more than MAX_TRACKING_IN_FLIGHT at a time over all batches. Users without any location are tracked
+	 * first, in the background lane and a window at a time too.
+	 * @param users The users whose nearby attractions are being searched.
+	 * @param numberOfNearbyAttraction The number of nearby attractions to return per user.
+	 * @return The attractions sorted by distance of each user, with the location they were ranked from,
+	 * keyed by user id, in the order of the users. Users whose tracking failed are left out.
+	 */
+	public Map<UUID, NearbyAttractionsFromLocation> getNearByAttractions(List<User> users, int numberOfNearbyAttraction) {
+		AttractionCoordinates attractionCoordinates = rewardsService.getAttractionCatalog().getCoordinates();
+		List<User> unlocatedUsers = users.stream()
+				.filter(user -> user.getLastVisitedLocation() == null)
+				.collect(Collectors.toList());
+		if (!unlocatedUsers.isEmpty()) {
+			createTrackingTask(unlocatedUsers).run();
+		}
+		Map<UUID, NearbyAttractionsFromLocation> nearbyAttractionsByUser = new LinkedHashMap<>();
+		for (User user : users) {
+			VisitedLocation visitedLocation = user.getLastVisitedLocation();
+			if (visitedLocation == null) {
+				continue;
 			}
+			if (Duration.between(visitedLocation.timeVisited.toInstant(), Instant.now()).compareTo(locationMaxAge) > 0) {
+				refreshInBackground(user);
+			}
+			nearbyAttractionsByUser.put(user.getUserId(), new NearbyAttractionsFromLocation(visitedLocation,
+					getNearByAttractions(attractionCoordinates, user, visitedLocation, numberOfNearbyAttraction)));
 		}
+		return nearbyAttractionsByUser;
+	}
 
-		// Sort attractions by distance
-		// limit by the numberOfNearbyAttraction
-        return nearbyAttractions.stream()
-                .sorted(Comparator.comparingDouble(AttractionDistanceFromUser::getDistance))
-                .limit(numberOfNearbyAttraction)
-                .collect(Collectors.toList());
-
+	private void refreshInBackground(User user) {
+		if (!batchRefreshWindow.tryAcquire()) {
+			return;
+		}
+		// Joins the tracking of the user already in flight, if any
+		trackUserLocationAsync(user, ExecutionLane.BACKGROUND).whenComplete((visitedLocation, ex) -> {
+			batchRefreshWindow.release();
+			if (ex != null) {
+				logger.warn("Failed to refresh the location of user " + user.getUserName() + ": " + ex.getMessage());
+			}
+		});
+	}
 
+	private List<AttractionDistanceFromUser> getNearByAttractions(AttractionCoordinates attractionCoordinates, User user,
+			VisitedLocation visitedLocation, int numberOfNearbyAttraction) {
+		// Only the attractions within the proximity range, sorted by distance
+		// and limited by the numberOfNearbyAttraction
+		AttractionCoordinates.Nearest nearest = nearbyAttractionsCache.nearest(attractionCoordinates,
+				visitedLocation.location, rewardsService.getAttractionProximityRange(), numberOfNearbyAttraction);
+		List<AttractionDistanceFromUser> nearbyAttractions = new ArrayList<>(nearest.size());
+		for (int rank = 0; rank < nearest.size(); rank++) {
+			Attraction attraction = attractionCoordinates.getAttraction(nearest.getIndex(rank));
+			nearbyAttractions.add(new AttractionDistanceFromUser(attraction, user, nearest.getDistance(rank)));
+		}
+		return nearbyAttractions;
 	}
 
 	private void addShutDownHook() {
@@ -204,11 +534,20 @@ public class TourGuideService {
 		});
 	}
 
+	private ExecutorService executorOf(ExecutionLane lane) {
+		return lane == ExecutionLane.INTERACTIVE ? interactiveExecutorService : backgroundExecutorService;
+	}
+
 	/**
-	 * Shuts down the executor service gracefully.
+	 * Shuts down the executor services gracefully.
 	 */
 	@PreDestroy
 	public void shutdownExecutor() {
+		shutdown(interactiveExecutorService);
+		shutdown(backgroundExecutorService);
+	}
+
+	private void shutdown(ExecutorService executorService) {
 		logger.info("Shutting down ExecutorService...");
 		executorService.shutdown();
 		try {
@@ -231,7 +570,8 @@ public class TourGuideService {
 	private static final String tripPricerApiKey = "test-server-api-key";
 	// Database connection will be used for external users, but for testing purposes
 	// internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
+	// Sorted by username, so that all users can be paged through while others are added
+	private final ConcurrentSkipListMap<String, User> internalUserMap = new ConcurrentSkipListMap<>();
 
 	private void initializeInternalUsers() {
 		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
@@ -270,4 +610,21 @@ public class TourGuideService {
 		return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
 	}
 
+	/**
+	 * A tracking in flight, shared by the callers of the same user.
+	 */
+	private static final class Tracking {
+		private final CompletableFuture<VisitedLocation> location = new CompletableFuture<>();
+		// The lane it was first submitted to
+		private final ExecutionLane lane;
+		// Set by the lane that runs it, the other one skipping it
+		private final AtomicBoolean started = new AtomicBoolean();
+		// Set once it is submitted to the interactive lane as well
+		private final AtomicBoolean promoted = new AtomicBoolean();
+
+		Tracking(ExecutionLane lane) {
+			this.lane = lane;
+		}
+	}
+
 }
@@ -0,0 +1,163 @@
+package com.openclassrooms.tourguide.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.dto.ImportedUser;
+import com.openclassrooms.tourguide.dto.UserImportReport;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Imports users along with their location history from NDJSON, one ImportedUser per line.
+ * <p>
+ * Lines are read BATCH_SIZE at a time and the users of a batch added at once, skipping those whose username
+ * is taken. The initial rewards of a batch are calculated in the background lane, no more than the
+ * RewardsService bulk window at a time, while the next batch is read, so that neither the reading nor the
+ * rewards wait for the other and no more than two batches are held in memory. Invalid lines are counted
+ * and reported, without stopping the import.
+ */
+@Service
+public class UserImportService {
+	private Logger logger = LoggerFactory.getLogger(UserImportService.class);
+	private static final int BATCH_SIZE = 1000;
+	private static final int MAX_REPORTED_ERRORS = 100;
+
+	private final TourGuideService tourGuideService;
+	private final RewardsService rewardsService;
+	private final ObjectMapper objectMapper;
+	// Runs the reward calculation of one batch at a time, while the next one is read
+	private final ExecutorService rewardsExecutorService = Executors.newSingleThreadExecutor(
+			new CustomizableThreadFactory("user-import-"));
+
+	public UserImportService(TourGuideService tourGuideService, RewardsService rewardsService, ObjectMapper objectMapper) {
+		this.tourGuideService = tourGuideService;
+		this.rewardsService = rewardsService;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Imports the users of an NDJSON stream and calculates their rewards, waiting for both to complete.
+	 * @param inputStream The users, one JSON object per line.
+	 * @return The counts of users imported and rejected, and the throughput.
+	 * @throws IOException When the stream could not be read.
+	 */
+	public UserImportReport importUsers(InputStream inputStream) throws IOException {
+		long start = System.nanoTime();
+		long linesRead = 0;
+		long usersImported = 0;
+		long duplicateUsers = 0;
+		long invalidLines = 0;
+		long locationsImported = 0;
+		AtomicLong rewardCalculationsFailed = new AtomicLong();
+		List<String> errors = new ArrayList<>();
+		CompletableFuture<Void> previousRewards = CompletableFuture.completedFuture(null);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+		List<User> batch = new ArrayList<>(BATCH_SIZE);
+		String line;
+		boolean ended = false;
+		while (!ended) {
+			line = reader.readLine();
+			ended = line == null;
+			if (!ended && !line.isBlank()) {
+				linesRead++;
+				try {
+					User user = toUser(objectMapper.readValue(line, ImportedUser.class));
+					if (tourGuideService.addUser(user)) {
+						batch.add(user);
+						usersImported++;
+						locationsImported += user.getVisitedLocationCount();
+					} else {
+						duplicateUsers++;
+					}
+				} catch (JsonProcessingException | IllegalArgumentException e) {
+					invalidLines++;
+					if (errors.size() < MAX_REPORTED_ERRORS) {
+						errors.add("Line " + linesRead + ": " + e.getMessage().lines().findFirst().orElse(""));
+					}
+				}
+			}
+			if (batch.size() == BATCH_SIZE || (ended && !batch.isEmpty())) {
+				// At most one batch calculated while the next one is read
+				previousRewards.join();
+				BulkTask<User> rewardsTask = rewardsService.createRewardsTask(batch);
+				previousRewards = CompletableFuture.runAsync(() -> {
+					rewardsTask.run();
+					rewardCalculationsFailed.addAndGet(rewardsTask.getFailed());
+				}, rewardsExecutorService);
+				batch = new ArrayList<>(BATCH_SIZE);
+				logger.debug("User import: " + usersImported + " users imported, " + invalidLines + " invalid lines");
+			}
+		}
+		previousRewards.join();
+
+		double elapsedSeconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+		logger.debug("User import: finished with " + usersImported + " users imported in " + elapsedSeconds + " s, "
+				+ duplicateUsers + " duplicates, " + invalidLines + " invalid lines");
+		return new UserImportReport(linesRead, usersImported, duplicateUsers, invalidLines, locationsImported,
+				rewardCalculationsFailed.get(), elapsedSeconds, Collections.unmodifiableList(errors));
+	}
+
+	private static User toUser(ImportedUser importedUser) {
+		if (importedUser.getUserName() == null || importedUser.getUserName().isBlank()) {
+			throw new IllegalArgumentException("userName is missing");
+		}
+		if (importedUser.getVisitedLocations() == null) {
+			throw new IllegalArgumentException("visitedLocations is null");
+		}
+		if (importedUser.getVisitedLocations().contains(null)) {
+			throw new IllegalArgumentException("visitedLocations holds a null location");
+		}
+		UUID userId = importedUser.getUserId() != null ? importedUser.getUserId() : UUID.randomUUID();
+		User user = new User(userId, importedUser.getUserName(), importedUser.getPhoneNumber(),
+				importedUser.getEmailAddress());
+		List<ImportedUser.ImportedLocation> locations = new ArrayList<>(importedUser.getVisitedLocations());
+		// The last location appended is taken as the current one
+		locations.sort(Comparator.comparing(ImportedUser.ImportedLocation::getTimeVisited,
+				Comparator.nullsFirst(Comparator.naturalOrder())));
+		for (ImportedUser.ImportedLocation location : locations) {
+			if (location.getTimeVisited() == null) {
+				throw new IllegalArgumentException("timeVisited is missing");
+			}
+			if (Math.abs(location.getLatitude()) > 90 || Math.abs(location.getLongitude()) > 180) {
+				throw new IllegalArgumentException("Invalid coordinates " + location.getLatitude() + ", "
+						+ location.getLongitude());
+			}
+			user.addToVisitedLocations(new VisitedLocation(userId,
+					new Location(location.getLatitude(), location.getLongitude()), location.getTimeVisited()));
+		}
+		return user;
+	}
+
+	/**
+	 * Shuts down the reward calculation thread when the application stops.
+	 */
+	@PreDestroy
+	public void shutdownExecutor() {
+		rewardsExecutorService.shutdownNow();
+	}
+}
@@ -4,11 +4,14 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.openclassrooms.tourguide.monitoring.TrackerCycleEvent;
+import com.openclassrooms.tourguide.service.BulkTask;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
 
@@ -17,12 +20,26 @@ public class Tracker extends Thread {
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
 	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private volatile boolean stop = false;
+	private final AtomicBoolean started = new AtomicBoolean();
+	// Pass in progress, cancelled when the tracking stops
+	private volatile BulkTask<User> currentPass;
 
 	public Tracker(TourGuideService tourGuideService) {
 		this.tourGuideService = tourGuideService;
+	}
+
+	/**
+	 * Starts the tracking of the users, once, unless it was stopped already.
+	 */
+	public void startTracking() {
+		if (!stop && started.compareAndSet(false, true)) {
+			executorService.submit(this);
+		}
+	}
 
-		executorService.submit(this);
+	public boolean isTracking() {
+		return started.get() && !stop;
 	}
 
 	/**
@@ -30,6 +47,10 @@ public class Tracker extends Thread {
 	 */
 	public void stopTracking() {
 		stop = true;
+		BulkTask<User> pass = currentPass;
+		if (pass != null) {
+			pass.cancel();
+		}
 		executorService.shutdownNow();
 	}
 
@@ -45,7 +66,21 @@ public class Tracker extends Thread {
 			List<User> users = tourGuideService.getAllUsers();
 			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
 			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
+			TrackerCycleEvent event = new TrackerCycleEvent();
+			event.begin();
+			// Runs in the background lane, leaving the interactive one to user requests
+			BulkTask<User> pass = tourGuideService.createTrackingTask(users);
+			currentPass = pass;
+			pass.run();
+			currentPass = null;
+			event.end();
+			if (event.shouldCommit()) {
+				event.userCount = users.size();
+				event.completed = pass.getCompleted();
+				event.failed = pass.getFailed();
+				event.cancelled = pass.isCancelled();
+				event.commit();
+			}
 			stopWatch.stop();
 			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds.");
 			stopWatch.reset();
@@ -0,0 +1,26 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Access to the GPS upstream, which locates users and lists the known attractions.
+ */
+public interface GpsGateway {
+
+	/**
+	 * Retrieves the current location of a user.
+	 * @param userId The identifier of the user to locate.
+	 * @return The location of the user, stamped with the time of the fix.
+	 */
+	VisitedLocation getUserLocation(UUID userId);
+
+	/**
+	 * Retrieves the catalog of attractions.
+	 * @return All the known attractions.
+	 */
+	List<Attraction> getAttractions();
+}
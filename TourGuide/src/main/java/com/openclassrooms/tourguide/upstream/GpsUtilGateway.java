@@ -0,0 +1,29 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * GpsGateway backed by the gpsUtil library.
+ */
+public class GpsUtilGateway implements GpsGateway {
+	private final GpsUtil gpsUtil;
+
+	public GpsUtilGateway(GpsUtil gpsUtil) {
+		this.gpsUtil = gpsUtil;
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return gpsUtil.getUserLocation(userId);
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return gpsUtil.getAttractions();
+	}
+}
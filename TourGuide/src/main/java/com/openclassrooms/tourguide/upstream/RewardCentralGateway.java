@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * RewardsGateway backed by the rewardCentral library.
+ */
+public class RewardCentralGateway implements RewardsGateway {
+	private final RewardCentral rewardCentral;
+
+	public RewardCentralGateway(RewardCentral rewardCentral) {
+		this.rewardCentral = rewardCentral;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return rewardCentral.getAttractionRewardPoints(attractionId, userId);
+	}
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.UUID;
+
+/**
+ * Access to the rewards upstream, which grants points to users visiting attractions.
+ */
+public interface RewardsGateway {
+
+	/**
+	 * Retrieves the points a user earns by visiting an attraction.
+	 * @param attractionId The identifier of the visited attraction.
+	 * @param userId The identifier of the visiting user.
+	 * @return The number of reward points.
+	 */
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * TripPricingGateway backed by the tripPricer library.
+ */
+public class TripPricerGateway implements TripPricingGateway {
+	private final TripPricer tripPricer;
+
+	public TripPricerGateway(TripPricer tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID userId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		return tripPricer.getPrice(apiKey, userId, adults, children, nightsStay, rewardsPoints);
+	}
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.upstream;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Access to the trip pricing upstream, which quotes trip deals from several providers.
+ */
+public interface TripPricingGateway {
+
+	/**
+	 * Retrieves the trip deals matching a user's preferences.
+	 * @param apiKey The key identifying the caller to the pricing upstream.
+	 * @param userId The identifier of the user.
+	 * @param adults The number of adults travelling.
+	 * @param children The number of children travelling.
+	 * @param nightsStay The duration of the trip in nights.
+	 * @param rewardsPoints The reward points the user can spend on the trip.
+	 * @return The deals of the providers.
+	 */
+	List<Provider> getPrice(String apiKey, UUID userId, int adults, int children, int nightsStay, int rewardsPoints);
+}
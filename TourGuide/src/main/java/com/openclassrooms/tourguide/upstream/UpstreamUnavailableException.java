@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.upstream;
+
+/**
+ * Thrown when an upstream call fails or is refused.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+	public UpstreamUnavailableException(String message) {
+		super(message);
+	}
+
+	public UpstreamUnavailableException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
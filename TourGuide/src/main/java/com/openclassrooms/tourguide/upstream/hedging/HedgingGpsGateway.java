@@ -0,0 +1,196 @@
+package com.openclassrooms.tourguide.upstream.hedging;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+
+/**
+ * GpsGateway hedging the slowest locations: when a call has not returned after the configured percentile
+ * of the latencies of the recent calls, a second identical call is issued and the first location wins.
+ * <p>
+ * Latencies are recorded in a histogram whose percentile is taken once per window. Hedged calls are paid
+ * from a budget refilled by a fraction of a call on every call, so they never exceed that share of the calls
+ * beyond a small burst, even when the upstream slows down as a whole.
+ * <p>
+ * Until enough calls were measured, calls are made on the caller's thread. Afterwards the calls run on a pool
+ * sized for one call per thread of the lanes plus the hedges of a burst, shut down with the gateway.
+ */
+public class HedgingGpsGateway implements GpsGateway, DisposableBean {
+	// Budget is counted in thousandths of a call
+	private static final long CALL_COST = 1000;
+
+	private final GpsGateway delegate;
+	private final HedgingProperties properties;
+	private final ThreadPoolExecutor executorService;
+
+	private final Recorder latencies = new Recorder(3);
+	private Histogram windowHistogram;
+	private final AtomicLong nextWindowNanos = new AtomicLong();
+	private final AtomicInteger windowSamples = new AtomicInteger();
+	// Delay before hedging, none until enough calls were measured
+	private volatile long hedgingDelayNanos = Long.MAX_VALUE;
+
+	private final AtomicLong budget;
+	private final LongAdder hedgedCalls = new LongAdder();
+	private final LongAdder hedgesWon = new LongAdder();
+
+	public HedgingGpsGateway(GpsGateway delegate, HedgingProperties properties) {
+		this.delegate = delegate;
+		this.properties = properties;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("gps-hedging-");
+		threadFactory.setDaemon(true);
+		int threads = properties.getThreads() + properties.getMaxBurst();
+		this.executorService = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), threadFactory);
+		// Idle threads go away, the pool only grows with the calls in flight
+		executorService.allowCoreThreadTimeOut(true);
+		this.budget = new AtomicLong(properties.getMaxBurst() * CALL_COST);
+		nextWindowNanos.set(System.nanoTime());
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		refillBudget();
+		updateHedgingDelay();
+		if (hedgingDelayNanos == Long.MAX_VALUE) {
+			// Nothing to hedge yet, no other thread is needed
+			return measure(userId);
+		}
+
+		// Completed by the first location, or by the last failure
+		CompletableFuture<VisitedLocation> result = new CompletableFuture<>();
+		AtomicInteger issued = new AtomicInteger(1);
+		AtomicInteger failures = new AtomicInteger();
+		locate(userId).whenComplete((location, ex) -> complete(result, location, ex, issued, failures));
+		try {
+			try {
+				return result.get(hedgingDelayNanos, TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				if (!tryAcquireHedge()) {
+					return result.get();
+				}
+			}
+			hedgedCalls.increment();
+			issued.incrementAndGet();
+			locate(userId).whenComplete((location, ex) -> {
+				if (complete(result, location, ex, issued, failures)) {
+					hedgesWon.increment();
+				}
+			});
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpstreamUnavailableException("Interrupted while locating user " + userId, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new UpstreamUnavailableException("Failed to locate user " + userId, e.getCause());
+		}
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return delegate.getAttractions();
+	}
+
+	public long getHedgedCalls() {
+		return hedgedCalls.sum();
+	}
+
+	public long getHedgesWon() {
+		return hedgesWon.sum();
+	}
+
+	public long getHedgingDelayNanos() {
+		return hedgingDelayNanos;
+	}
+
+	/**
+	 * Shuts down the threads of the calls, when the application stops.
+	 */
+	@Override
+	public void destroy() {
+		executorService.shutdownNow();
+	}
+
+	public boolean isShutdown() {
+		return executorService.isShutdown();
+	}
+
+	private CompletableFuture<VisitedLocation> locate(UUID userId) {
+		return CompletableFuture.supplyAsync(() -> measure(userId), executorService);
+	}
+
+	private VisitedLocation measure(UUID userId) {
+		long start = System.nanoTime();
+		VisitedLocation visitedLocation = delegate.getUserLocation(userId);
+		latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		windowSamples.incrementAndGet();
+		return visitedLocation;
+	}
+
+	private static boolean complete(CompletableFuture<VisitedLocation> result, VisitedLocation location, Throwable ex,
+			AtomicInteger issued, AtomicInteger failures) {
+		if (ex == null) {
+			return result.complete(location);
+		}
+		if (failures.incrementAndGet() == issued.get()) {
+			result.completeExceptionally(ex);
+		}
+		return false;
+	}
+
+	private void refillBudget() {
+		long refill = (long) (properties.getBudget() * CALL_COST);
+		long max = properties.getMaxBurst() * CALL_COST;
+		budget.getAndUpdate(current -> Math.min(max, current + refill));
+	}
+
+	private boolean tryAcquireHedge() {
+		long current;
+		do {
+			current = budget.get();
+			if (current < CALL_COST) {
+				return false;
+			}
+		} while (!budget.compareAndSet(current, current - CALL_COST));
+		return true;
+	}
+
+	private void updateHedgingDelay() {
+		long now = System.nanoTime();
+		long next = nextWindowNanos.get();
+		if (now - next < 0 || !nextWindowNanos.compareAndSet(next, now + properties.getWindow().toNanos())) {
+			return;
+		}
+		// Only the thread that moved the window on gets here, the lock orders it with the previous one
+		synchronized (latencies) {
+			if (windowSamples.get() < properties.getMinSamples()) {
+				return;
+			}
+			windowSamples.set(0);
+			windowHistogram = latencies.getIntervalHistogram(windowHistogram);
+			long delayMicros = windowHistogram.getValueAtPercentile(properties.getPercentile());
+			hedgingDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, delayMicros));
+		}
+	}
+}
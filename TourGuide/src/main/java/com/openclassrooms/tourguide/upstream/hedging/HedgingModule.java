@@ -0,0 +1,54 @@
+package com.openclassrooms.tourguide.upstream.hedging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+
+/**
+ * Hedges the calls of the GpsGateway, whichever profile provides it, when tourguide.hedging.gps.enabled is true.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tourguide.hedging.gps", name = "enabled")
+public class HedgingModule {
+
+	@Bean
+	public static DestructionAwareBeanPostProcessor getHedgingGpsGatewayPostProcessor(Environment environment) {
+		// Bound here rather than injected, post processors being created before the properties beans
+		HedgingProperties properties = Binder.get(environment).bind("tourguide.hedging.gps", HedgingProperties.class)
+				.orElseGet(HedgingProperties::new);
+		// Spring destroys the beans it created, not the wrappers, which are shut down along with their delegate
+		Map<String, HedgingGpsGateway> wrappers = new ConcurrentHashMap<>();
+		return new DestructionAwareBeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof GpsGateway gpsGateway && !(bean instanceof HedgingGpsGateway)) {
+					HedgingGpsGateway hedgingGpsGateway = new HedgingGpsGateway(gpsGateway, properties);
+					wrappers.put(beanName, hedgingGpsGateway);
+					return hedgingGpsGateway;
+				}
+				return bean;
+			}
+
+			@Override
+			public boolean requiresDestruction(Object bean) {
+				return bean instanceof GpsGateway;
+			}
+
+			@Override
+			public void postProcessBeforeDestruction(Object bean, String beanName) {
+				HedgingGpsGateway hedgingGpsGateway = wrappers.remove(beanName);
+				if (hedgingGpsGateway != null) {
+					hedgingGpsGateway.destroy();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.tourguide.upstream.hedging;
+
+import java.time.Duration;
+
+/**
+ * Settings of the hedging of the GPS calls, under tourguide.hedging.gps.
+ */
+public class HedgingProperties {
+	private boolean enabled = false;
+	// Latency percentile of the recent calls after which a call is hedged
+	private double percentile = 95;
+	// Hedged calls allowed per call, e.g. 0.05 for at most 5% more calls
+	private double budget = 0.05;
+	// Hedged calls allowed in a burst, when the budget has not been used for a while
+	private int maxBurst = 10;
+	// Calls measured before hedging starts
+	private int minSamples = 100;
+	// Period of the latency window the percentile is taken from
+	private Duration window = Duration.ofSeconds(10);
+	// Calls made at once, one per thread of the tracking lanes (20 interactive and 100 background)
+	private int threads = 120;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+
+	public void setPercentile(double percentile) {
+		this.percentile = percentile;
+	}
+
+	public double getBudget() {
+		return budget;
+	}
+
+	public void setBudget(double budget) {
+		this.budget = budget;
+	}
+
+	public int getMaxBurst() {
+		return maxBurst;
+	}
+
+	public void setMaxBurst(int maxBurst) {
+		this.maxBurst = maxBurst;
+	}
+
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	public void setMinSamples(int minSamples) {
+		this.minSamples = minSamples;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(Duration window) {
+		this.window = window;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+}
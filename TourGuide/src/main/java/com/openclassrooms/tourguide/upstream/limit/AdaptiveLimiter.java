@@ -0,0 +1,111 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+
+/**
+ * Limits the calls in flight to an upstream, adapting the limit to what the upstream sustains (AIMD).
+ * <p>
+ * Two moving averages of the latency are kept, a short one following the recent calls and a long one
+ * following the usual latency. A failed call, or recent calls slower than latencyTolerance times the usual,
+ * multiply the limit by backoffRatio, at most once per round trip. Otherwise, while the calls in flight use at least half the limit,
+ * every call adds one to it, so the limit rises until the upstream slows down, then oscillates below that point.
+ */
+public class AdaptiveLimiter {
+	private static final double SHORT_SMOOTHING = 0.1;
+	private static final double LONG_SMOOTHING = 0.005;
+
+	private final String name;
+	private final LimiterProperties properties;
+	private double limit;
+	private int inFlight;
+	private double shortLatency;
+	private double longLatency;
+	private long lastBackoffNanos;
+
+	public AdaptiveLimiter(String name, LimiterProperties properties) {
+		this.name = name;
+		this.properties = properties;
+		this.limit = properties.getInitialLimit();
+	}
+
+	/**
+	 * Makes a call to the upstream once the limit allows it.
+	 * @param call The call to the upstream.
+	 * @return The result of the call.
+	 * @throws UpstreamUnavailableException If the limit did not allow the call within maxWait.
+	 */
+	public <T> T call(Supplier<T> call) {
+		acquire();
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			T result = call.get();
+			succeeded = true;
+			return result;
+		} finally {
+			release(System.nanoTime() - start, succeeded);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	private synchronized void acquire() {
+		long remainingNanos = properties.getMaxWait().toNanos();
+		long deadline = System.nanoTime() + remainingNanos;
+		boolean interrupted = false;
+		while (inFlight >= (int) limit) {
+			if (remainingNanos <= 0) {
+				throw new UpstreamUnavailableException("No capacity left toward " + name + " within " + properties.getMaxWait());
+			}
+			try {
+				TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+			remainingNanos = deadline - System.nanoTime();
+		}
+		inFlight++;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void release(long latencyNanos, boolean succeeded) {
+		int inFlightBefore = inFlight;
+		inFlight--;
+		if (succeeded && longLatency == 0) {
+			shortLatency = latencyNanos;
+			longLatency = latencyNanos;
+		} else if (succeeded) {
+			shortLatency += SHORT_SMOOTHING * (latencyNanos - shortLatency);
+			longLatency += LONG_SMOOTHING * (latencyNanos - longLatency);
+		}
+
+		if (!succeeded || shortLatency > properties.getLatencyTolerance() * longLatency) {
+			// At most once per round trip, the calls in flight having been sent before the previous backoff
+			long now = System.nanoTime();
+			if (now - lastBackoffNanos > shortLatency) {
+				lastBackoffNanos = now;
+				limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+			}
+		} else if (inFlightBefore * 2 >= limit) {
+			limit = Math.min(properties.getMaxLimit(), limit + 1);
+			notifyAll();
+			return;
+		}
+		notify();
+	}
+}
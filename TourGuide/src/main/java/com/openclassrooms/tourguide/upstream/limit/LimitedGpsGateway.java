@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+
+/**
+ * GpsGateway making its calls within the limit of an AdaptiveLimiter.
+ */
+public class LimitedGpsGateway implements GpsGateway {
+	private final GpsGateway delegate;
+	private final AdaptiveLimiter limiter;
+
+	public LimitedGpsGateway(GpsGateway delegate, AdaptiveLimiter limiter) {
+		this.delegate = delegate;
+		this.limiter = limiter;
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return limiter.call(() -> delegate.getUserLocation(userId));
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return limiter.call(delegate::getAttractions);
+	}
+}
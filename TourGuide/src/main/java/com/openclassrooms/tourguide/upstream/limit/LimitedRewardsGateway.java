@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+
+/**
+ * RewardsGateway making its calls within the limit of an AdaptiveLimiter.
+ */
+public class LimitedRewardsGateway implements RewardsGateway {
+	private final RewardsGateway delegate;
+	private final AdaptiveLimiter limiter;
+
+	public LimitedRewardsGateway(RewardsGateway delegate, AdaptiveLimiter limiter) {
+		this.delegate = delegate;
+		this.limiter = limiter;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return limiter.call(() -> delegate.getAttractionRewardPoints(attractionId, userId));
+	}
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
+import tripPricer.Provider;
+
+/**
+ * TripPricingGateway making its calls within the limit of an AdaptiveLimiter.
+ */
+public class LimitedTripPricingGateway implements TripPricingGateway {
+	private final TripPricingGateway delegate;
+	private final AdaptiveLimiter limiter;
+
+	public LimitedTripPricingGateway(TripPricingGateway delegate, AdaptiveLimiter limiter) {
+		this.delegate = delegate;
+		this.limiter = limiter;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID userId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		return limiter.call(() -> delegate.getPrice(apiKey, userId, adults, children, nightsStay, rewardsPoints));
+	}
+}
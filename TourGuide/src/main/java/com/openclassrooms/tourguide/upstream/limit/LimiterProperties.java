@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.time.Duration;
+
+/**
+ * Settings of the adaptive limiter of the calls to one upstream.
+ */
+public class LimiterProperties {
+	private int initialLimit = 50;
+	private int minLimit = 1;
+	private int maxLimit = 1000;
+	// Factor applied to the limit when the upstream shows signs of overload
+	private double backoffRatio = 0.9;
+	// How much slower than usual the recent calls must be to count as an overload
+	private double latencyTolerance = 2;
+	// Beyond which a call waiting for the limit fails instead
+	private Duration maxWait = Duration.ofSeconds(10);
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	public double getLatencyTolerance() {
+		return latencyTolerance;
+	}
+
+	public void setLatencyTolerance(double latencyTolerance) {
+		this.latencyTolerance = latencyTolerance;
+	}
+
+	public Duration getMaxWait() {
+		return maxWait;
+	}
+
+	public void setMaxWait(Duration maxWait) {
+		this.maxWait = maxWait;
+	}
+}
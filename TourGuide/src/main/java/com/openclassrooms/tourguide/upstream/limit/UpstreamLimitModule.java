@@ -0,0 +1,83 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
+
+/**
+ * Puts the calls to each upstream, whichever profile provides it, within the limit of an adaptive limiter,
+ * unless tourguide.limits.enabled is false. The limits and calls in flight are published as the
+ * tourguide.upstream.limit and tourguide.upstream.in.flight gauges, tagged with the upstream.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tourguide.limits", name = "enabled", matchIfMissing = true)
+public class UpstreamLimitModule {
+
+	@Bean
+	public static UpstreamLimiters getUpstreamLimiters(Environment environment) {
+		// Bound here rather than injected, post processors being created before the properties beans
+		UpstreamLimitsProperties properties = Binder.get(environment)
+				.bind("tourguide.limits", UpstreamLimitsProperties.class)
+				.orElseGet(UpstreamLimitsProperties::new);
+		return new UpstreamLimiters(properties);
+	}
+
+	@Bean
+	public static BeanPostProcessor getUpstreamLimitPostProcessor(UpstreamLimiters limiters) {
+		return new LimitingPostProcessor(limiters);
+	}
+
+	@Bean
+	public MeterBinder getUpstreamLimitMetrics(UpstreamLimiters limiters) {
+		return registry -> limiters.getAll().forEach(limiter -> {
+			Gauge.builder("tourguide.upstream.limit", limiter, AdaptiveLimiter::getLimit)
+					.description("Calls allowed in flight toward the upstream")
+					.tag("upstream", limiter.getName())
+					.register(registry);
+			Gauge.builder("tourguide.upstream.in.flight", limiter, AdaptiveLimiter::getInFlight)
+					.description("Calls in flight toward the upstream")
+					.tag("upstream", limiter.getName())
+					.register(registry);
+		});
+	}
+
+	/**
+	 * Wraps the gateways first, so that decorators such as the hedging have their calls limited too.
+	 */
+	private static class LimitingPostProcessor implements BeanPostProcessor, Ordered {
+		private final UpstreamLimiters limiters;
+
+		LimitingPostProcessor(UpstreamLimiters limiters) {
+			this.limiters = limiters;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof GpsGateway gpsGateway && !(bean instanceof LimitedGpsGateway)) {
+				return new LimitedGpsGateway(gpsGateway, limiters.getGps());
+			}
+			if (bean instanceof RewardsGateway rewardsGateway && !(bean instanceof LimitedRewardsGateway)) {
+				return new LimitedRewardsGateway(rewardsGateway, limiters.getRewards());
+			}
+			if (bean instanceof TripPricingGateway tripPricingGateway && !(bean instanceof LimitedTripPricingGateway)) {
+				return new LimitedTripPricingGateway(tripPricingGateway, limiters.getTripPricer());
+			}
+			return bean;
+		}
+
+		@Override
+		public int getOrder() {
+			return Ordered.HIGHEST_PRECEDENCE;
+		}
+	}
+}
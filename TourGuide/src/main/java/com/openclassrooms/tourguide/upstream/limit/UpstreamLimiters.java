@@ -0,0 +1,34 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+import java.util.List;
+
+/**
+ * The adaptive limiters of the upstreams, one per upstream.
+ */
+public class UpstreamLimiters {
+	private final AdaptiveLimiter gps;
+	private final AdaptiveLimiter rewards;
+	private final AdaptiveLimiter tripPricer;
+
+	public UpstreamLimiters(UpstreamLimitsProperties properties) {
+		gps = new AdaptiveLimiter("gps", properties.getGps());
+		rewards = new AdaptiveLimiter("rewards", properties.getRewards());
+		tripPricer = new AdaptiveLimiter("tripPricer", properties.getTripPricer());
+	}
+
+	public AdaptiveLimiter getGps() {
+		return gps;
+	}
+
+	public AdaptiveLimiter getRewards() {
+		return rewards;
+	}
+
+	public AdaptiveLimiter getTripPricer() {
+		return tripPricer;
+	}
+
+	public List<AdaptiveLimiter> getAll() {
+		return List.of(gps, rewards, tripPricer);
+	}
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.upstream.limit;
+
+/**
+ * Settings of the adaptive limiters of the upstreams, under tourguide.limits.
+ */
+public class UpstreamLimitsProperties {
+	private boolean enabled = true;
+	private LimiterProperties gps = new LimiterProperties();
+	private LimiterProperties rewards = new LimiterProperties();
+	private LimiterProperties tripPricer = new LimiterProperties();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public LimiterProperties getGps() {
+		return gps;
+	}
+
+	public void setGps(LimiterProperties gps) {
+		this.gps = gps;
+	}
+
+	public LimiterProperties getRewards() {
+		return rewards;
+	}
+
+	public void setRewards(LimiterProperties rewards) {
+		this.rewards = rewards;
+	}
+
+	public LimiterProperties getTripPricer() {
+		return tripPricer;
+	}
+
+	public void setTripPricer(LimiterProperties tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+}
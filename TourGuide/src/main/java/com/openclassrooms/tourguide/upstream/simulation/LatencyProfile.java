@@ -0,0 +1,86 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the latency of a simulated upstream call.
+ */
+public class LatencyProfile {
+
+	public enum Distribution {
+		// Always minMillis
+		FIXED,
+		// Evenly spread between minMillis and maxMillis
+		UNIFORM,
+		// Pareto distribution starting at minMillis, capped at maxMillis when it is set
+		LONG_TAIL
+	}
+
+	private Distribution distribution = Distribution.FIXED;
+	private long minMillis = 0;
+	private long maxMillis = 0;
+	// Shape of the Pareto distribution, the lower the heavier the tail
+	private double tailIndex = 1.5;
+
+	public LatencyProfile() {
+	}
+
+	public LatencyProfile(Distribution distribution, long minMillis, long maxMillis) {
+		this.distribution = distribution;
+		this.minMillis = minMillis;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * Draws the latency of one call.
+	 * @param random The source of randomness of the call.
+	 * @return The latency in microseconds.
+	 */
+	public long sampleMicros(SplittableRandom random) {
+		long minMicros = minMillis * 1000;
+		long maxMicros = maxMillis * 1000;
+		switch (distribution) {
+			case UNIFORM:
+				return maxMicros > minMicros ? random.nextLong(minMicros, maxMicros + 1) : minMicros;
+			case LONG_TAIL:
+				// Inverse transform sampling of a Pareto distribution with scale minMicros
+				double scale = Math.max(minMicros, 1000);
+				long sample = (long) (scale / Math.pow(1 - random.nextDouble(), 1 / tailIndex));
+				return maxMicros > 0 ? Math.min(sample, maxMicros) : sample;
+			default:
+				return minMicros;
+		}
+	}
+
+	public Distribution getDistribution() {
+		return distribution;
+	}
+
+	public void setDistribution(Distribution distribution) {
+		this.distribution = distribution;
+	}
+
+	public long getMinMillis() {
+		return minMillis;
+	}
+
+	public void setMinMillis(long minMillis) {
+		this.minMillis = minMillis;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	public void setMaxMillis(long maxMillis) {
+		this.maxMillis = maxMillis;
+	}
+
+	public double getTailIndex() {
+		return tailIndex;
+	}
+
+	public void setTailIndex(double tailIndex) {
+		this.tailIndex = tailIndex;
+	}
+}
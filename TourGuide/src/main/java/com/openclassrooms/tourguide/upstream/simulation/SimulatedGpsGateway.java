@@ -0,0 +1,65 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+
+/**
+ * Local stand-in for gpsUtil, locating users at random places and serving the attractions
+ * listed in simulation/attractions.csv.
+ */
+public class SimulatedGpsGateway extends SimulatedUpstream implements GpsGateway {
+	private static final String ATTRACTIONS_RESOURCE = "/simulation/attractions.csv";
+
+	private final List<Attraction> attractions;
+
+	public SimulatedGpsGateway(UpstreamProfile profile, long seed) {
+		super("GPS", profile, seed);
+		this.attractions = Collections.unmodifiableList(loadAttractions());
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		SplittableRandom random = simulateCall();
+		double latitude = random.nextDouble(-85.05112878, 85.05112878);
+		double longitude = random.nextDouble(-180, 180);
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		simulateCall();
+		return new ArrayList<>(attractions);
+	}
+
+	private static List<Attraction> loadAttractions() {
+		List<Attraction> attractions = new ArrayList<>();
+		try (InputStream in = SimulatedGpsGateway.class.getResourceAsStream(ATTRACTIONS_RESOURCE);
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// name;city;state;latitude;longitude
+				String[] fields = line.split(";");
+				attractions.add(new Attraction(fields[0], fields[1], fields[2],
+						Double.parseDouble(fields[3]), Double.parseDouble(fields[4])));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + ATTRACTIONS_RESOURCE, e);
+		}
+		return attractions;
+	}
+}
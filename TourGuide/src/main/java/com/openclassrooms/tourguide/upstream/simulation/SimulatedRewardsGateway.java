@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+
+/**
+ * Local stand-in for rewardCentral. A user always earns the same points for the same attraction.
+ */
+public class SimulatedRewardsGateway extends SimulatedUpstream implements RewardsGateway {
+
+	public SimulatedRewardsGateway(UpstreamProfile profile, long seed) {
+		super("RewardCentral", profile, seed);
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		simulateCall();
+		SplittableRandom points = new SplittableRandom(getSeed() ^ attractionId.hashCode() ^ ((long) userId.hashCode() << 32));
+		return points.nextInt(1, 1000);
+	}
+}
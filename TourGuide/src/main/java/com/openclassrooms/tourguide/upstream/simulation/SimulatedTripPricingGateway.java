@@ -0,0 +1,39 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
+import tripPricer.Provider;
+
+/**
+ * Local stand-in for tripPricer, quoting five distinct providers like the real one.
+ */
+public class SimulatedTripPricingGateway extends SimulatedUpstream implements TripPricingGateway {
+	private static final List<String> PROVIDER_NAMES = List.of("Holiday Travels", "Enterprize Ventures Limited",
+			"Sunny Days", "FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+			"Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues");
+	private static final int PROVIDERS_PER_QUOTE = 5;
+
+	public SimulatedTripPricingGateway(UpstreamProfile profile, long seed) {
+		super("TripPricer", profile, seed);
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID userId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		SplittableRandom random = simulateCall();
+		List<String> names = new ArrayList<>(PROVIDER_NAMES);
+		List<Provider> providers = new ArrayList<>();
+		for (int i = 0; i < PROVIDERS_PER_QUOTE; i++) {
+			String name = names.remove(random.nextInt(names.size()));
+			int nightlyRate = random.nextInt(100, 700);
+			double price = Math.max(0, (nightlyRate * adults + nightlyRate / 2.0 * children) * nightsStay
+					+ 0.99 - rewardsPoints);
+			providers.add(new Provider(new UUID(random.nextLong(), random.nextLong()), name, price));
+		}
+		return providers;
+	}
+}
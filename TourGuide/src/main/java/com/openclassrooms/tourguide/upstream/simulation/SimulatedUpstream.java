@@ -0,0 +1,72 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+
+/**
+ * Common behavior of the simulated upstreams: throughput cap, latency and failures.
+ * <p>
+ * Every call draws its randomness from the seed and the call's sequence number,
+ * so a run issuing the same calls in the same order sees the same latencies, failures and results.
+ */
+abstract class SimulatedUpstream {
+	private static final long SEQUENCE_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final String name;
+	private final UpstreamProfile profile;
+	private final long seed;
+	private final AtomicLong sequence = new AtomicLong();
+	private final long callIntervalNanos;
+	private long nextFreeCallNanos = System.nanoTime();
+
+	protected SimulatedUpstream(String name, UpstreamProfile profile, long seed) {
+		this.name = name;
+		this.profile = profile;
+		this.seed = seed;
+		this.callIntervalNanos = profile.getMaxCallsPerSecond() > 0
+				? TimeUnit.SECONDS.toNanos(1) / profile.getMaxCallsPerSecond()
+				: 0;
+	}
+
+	protected long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Waits for the call's turn and latency, then fails it or returns the randomness to build its result from.
+	 * @return The source of randomness of this call.
+	 * @throws UpstreamUnavailableException When the call is drawn to fail.
+	 */
+	protected SplittableRandom simulateCall() {
+		SplittableRandom random = new SplittableRandom(seed ^ (sequence.getAndIncrement() * SEQUENCE_GAMMA));
+		try {
+			awaitThroughputCap();
+			TimeUnit.MICROSECONDS.sleep(profile.getLatency().sampleMicros(random));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpstreamUnavailableException(name + " call interrupted", e);
+		}
+		if (random.nextDouble() < profile.getErrorRate()) {
+			throw new UpstreamUnavailableException(name + " simulated failure");
+		}
+		return random;
+	}
+
+	/**
+	 * Spaces the calls evenly so that no more than maxCallsPerSecond are served.
+	 */
+	private void awaitThroughputCap() throws InterruptedException {
+		if (callIntervalNanos == 0) {
+			return;
+		}
+		long callNanos;
+		synchronized (this) {
+			callNanos = Math.max(System.nanoTime(), nextFreeCallNanos);
+			nextFreeCallNanos = callNanos + callIntervalNanos;
+		}
+		TimeUnit.NANOSECONDS.sleep(callNanos - System.nanoTime());
+	}
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.RewardsGateway;
+import com.openclassrooms.tourguide.upstream.TripPricingGateway;
+
+/**
+ * Replaces the upstream libraries with local simulations when the simulation profile is active.
+ * Their behavior is set by the tourguide.simulation.* properties, see application-simulation.properties.
+ */
+@Configuration
+@Profile("simulation")
+@EnableConfigurationProperties(SimulationProperties.class)
+public class SimulationModule {
+
+	@Bean
+	public GpsGateway getGpsGateway(SimulationProperties properties) {
+		return new SimulatedGpsGateway(properties.getGps(), properties.getSeed());
+	}
+
+	@Bean
+	public RewardsGateway getRewardsGateway(SimulationProperties properties) {
+		return new SimulatedRewardsGateway(properties.getRewards(), properties.getSeed());
+	}
+
+	@Bean
+	public TripPricingGateway getTripPricingGateway(SimulationProperties properties) {
+		return new SimulatedTripPricingGateway(properties.getTripPricer(), properties.getSeed());
+	}
+}
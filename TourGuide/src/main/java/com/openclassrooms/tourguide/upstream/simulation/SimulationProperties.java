@@ -0,0 +1,47 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the simulated upstreams used by the simulation profile.
+ */
+@ConfigurationProperties(prefix = "tourguide.simulation")
+public class SimulationProperties {
+	// Seed of every random draw, so that two runs with the same settings behave the same
+	private long seed = 42;
+	private UpstreamProfile gps = new UpstreamProfile();
+	private UpstreamProfile rewards = new UpstreamProfile();
+	private UpstreamProfile tripPricer = new UpstreamProfile();
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public UpstreamProfile getGps() {
+		return gps;
+	}
+
+	public void setGps(UpstreamProfile gps) {
+		this.gps = gps;
+	}
+
+	public UpstreamProfile getRewards() {
+		return rewards;
+	}
+
+	public void setRewards(UpstreamProfile rewards) {
+		this.rewards = rewards;
+	}
+
+	public UpstreamProfile getTripPricer() {
+		return tripPricer;
+	}
+
+	public void setTripPricer(UpstreamProfile tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+}
@@ -0,0 +1,36 @@
+package com.openclassrooms.tourguide.upstream.simulation;
+
+/**
+ * Behavior of a simulated upstream: latency, failures and throughput.
+ */
+public class UpstreamProfile {
+	private LatencyProfile latency = new LatencyProfile();
+	// Share of the calls failing, between 0 and 1
+	private double errorRate = 0;
+	// Calls served per second, 0 for no limit
+	private int maxCallsPerSecond = 0;
+
+	public LatencyProfile getLatency() {
+		return latency;
+	}
+
+	public void setLatency(LatencyProfile latency) {
+		this.latency = latency;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public int getMaxCallsPerSecond() {
+		return maxCallsPerSecond;
+	}
+
+	public void setMaxCallsPerSecond(int maxCallsPerSecond) {
+		this.maxCallsPerSecond = maxCallsPerSecond;
+	}
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List that a single writer appends to while any number of readers take snapshots of it.
+ * <p>
+ * Appends write past the end of the last published snapshot and publish a new one, growing the array
+ * by doubling when full, so an append costs amortized O(1) instead of the full copy of a CopyOnWriteArrayList.
+ * A snapshot is an immutable view of the entries present when it was taken, obtained without locking or copying.
+ * <p>
+ * Appends must be serialized by the caller.
+ *
+ * @param <E> The type of the entries.
+ */
+final class AppendLog<E> {
+	private static final Object[] EMPTY = new Object[0];
+
+	private volatile Snapshot<E> snapshot = new Snapshot<>(EMPTY, 0);
+
+	void append(E entry) {
+		Snapshot<E> current = snapshot;
+		Object[] entries = current.entries;
+		if (current.size == entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(4, entries.length * 2));
+		}
+		entries[current.size] = entry;
+		snapshot = new Snapshot<>(entries, current.size + 1);
+	}
+
+	List<E> snapshot() {
+		return snapshot;
+	}
+
+	int size() {
+		return snapshot.size;
+	}
+
+	private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+		private final Object[] entries;
+		private final int size;
+
+		Snapshot(Object[] entries, int size) {
+			this.entries = entries;
+			this.size = size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return (E) entries[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
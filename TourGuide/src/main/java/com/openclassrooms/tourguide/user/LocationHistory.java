@@ -0,0 +1,277 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Compact, append-only history of the locations visited by a user.
+ * <p>
+ * Locations are stored in chunks of CHUNK_SIZE entries. The first entry of a chunk is kept as is,
+ * the following ones as the zigzag varint encoded difference with the previous entry, for the time
+ * in milliseconds and for the coordinates in millionths of a degree (about 11 cm, the precision of gpsUtil).
+ * A location from the same area shortly after the previous one takes 4 to 6 bytes instead of about 80
+ * for a VisitedLocation with its Location and Date.
+ * <p>
+ * Each chunk keeps the time range it covers. As long as the locations are appended in chronological order,
+ * time range lookups binary search the chunks, otherwise they skip the chunks whose range does not overlap.
+ */
+public class LocationHistory {
+	private static final int CHUNK_SIZE = 128;
+	private static final double COORDINATE_SCALE = 1_000_000d;
+
+	private final UUID userId;
+	// Sealed chunks, then the open chunk receiving the appends
+	private final List<Chunk> chunks = new ArrayList<>();
+	private int size;
+	private boolean chronological = true;
+	private long lastTime = Long.MIN_VALUE;
+
+	public LocationHistory(UUID userId) {
+		this.userId = userId;
+	}
+
+	/**
+	 * Receives the entries of the history without allocating a VisitedLocation for each.
+	 */
+	@FunctionalInterface
+	public interface LocationConsumer {
+		void accept(long timeVisited, double latitude, double longitude);
+	}
+
+	public synchronized void append(VisitedLocation visitedLocation) {
+		long time = visitedLocation.timeVisited.getTime();
+		int latitude = (int) Math.round(visitedLocation.location.latitude * COORDINATE_SCALE);
+		int longitude = (int) Math.round(visitedLocation.location.longitude * COORDINATE_SCALE);
+
+		Chunk openChunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (openChunk == null || openChunk.count == CHUNK_SIZE) {
+			if (openChunk != null) {
+				openChunk.seal();
+			}
+			openChunk = new Chunk(time, latitude, longitude);
+			chunks.add(openChunk);
+		} else {
+			openChunk.append(time, latitude, longitude);
+		}
+		chronological &= time >= lastTime;
+		lastTime = time;
+		size++;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Decodes the whole history.
+	 * @return A new list holding every visited location, in the order they were appended.
+	 */
+	public List<VisitedLocation> toList() {
+		List<VisitedLocation> visitedLocations = new ArrayList<>(size());
+		forEach(Long.MIN_VALUE, Long.MAX_VALUE, (time, latitude, longitude) -> visitedLocations
+				.add(new VisitedLocation(userId, new Location(latitude, longitude), new Date(time))));
+		return visitedLocations;
+	}
+
+	/**
+	 * Decodes the entries of the history between two positions. The chunks before the first position are
+	 * skipped without being decoded, so that reading the tail of a long history costs about a chunk.
+	 * @param fromIndex The position of the first entry, inclusive.
+	 * @param toIndex The position of the last entry, exclusive, at most the size of the history.
+	 * @return A new list holding the visited locations between the positions, in the order they were appended.
+	 */
+	public List<VisitedLocation> toList(int fromIndex, int toIndex) {
+		int firstChunk = fromIndex / CHUNK_SIZE;
+		ChunkView[] views;
+		synchronized (this) {
+			if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+				throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") out of a history of "
+						+ size + " locations");
+			}
+			int endChunk = (toIndex + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			views = new ChunkView[Math.max(endChunk - firstChunk, 0)];
+			for (int i = 0; i < views.length; i++) {
+				views[i] = chunks.get(firstChunk + i).view();
+			}
+		}
+
+		List<VisitedLocation> visitedLocations = new ArrayList<>(toIndex - fromIndex);
+		LocationConsumer consumer = (time, latitude, longitude) -> visitedLocations
+				.add(new VisitedLocation(userId, new Location(latitude, longitude), new Date(time)));
+		for (int i = 0; i < views.length; i++) {
+			int chunkStart = (firstChunk + i) * CHUNK_SIZE;
+			views[i].decode(fromIndex - chunkStart, toIndex - chunkStart, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+		}
+		return visitedLocations;
+	}
+
+	/**
+	 * Decodes, one at a time, the locations visited within a time range.
+	 * The history can keep growing meanwhile, only the entries present when the call starts are visited.
+	 * @param from The start of the range in epoch milliseconds, inclusive.
+	 * @param to The end of the range in epoch milliseconds, inclusive.
+	 * @param consumer Receives each location of the range, in the order they were appended.
+	 */
+	public void forEach(long from, long to, LocationConsumer consumer) {
+		ChunkView[] views;
+		boolean sorted;
+		synchronized (this) {
+			views = new ChunkView[chunks.size()];
+			for (int i = 0; i < views.length; i++) {
+				views[i] = chunks.get(i).view();
+			}
+			sorted = chronological;
+		}
+
+		int first = sorted ? firstChunkEndingAfter(views, from) : 0;
+		for (int i = first; i < views.length; i++) {
+			ChunkView view = views[i];
+			if (view.minTime > to) {
+				if (sorted) {
+					break;
+				}
+				continue;
+			}
+			if (view.maxTime >= from) {
+				view.decode(0, view.count, from, to, consumer);
+			}
+		}
+	}
+
+	/**
+	 * Binary searches, in chronologically ordered chunks, the first one ending at or after the given time.
+	 */
+	private static int firstChunkEndingAfter(ChunkView[] views, long time) {
+		int low = 0;
+		int high = views.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (views[middle].maxTime < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static final class Chunk {
+		private final long firstTime;
+		private final int firstLatitude;
+		private final int firstLongitude;
+		private byte[] data = new byte[64];
+		private int length;
+		private int count = 1;
+		private long minTime;
+		private long maxTime;
+		private long previousTime;
+		private int previousLatitude;
+		private int previousLongitude;
+
+		Chunk(long time, int latitude, int longitude) {
+			firstTime = minTime = maxTime = previousTime = time;
+			firstLatitude = previousLatitude = latitude;
+			firstLongitude = previousLongitude = longitude;
+		}
+
+		void append(long time, int latitude, int longitude) {
+			writeVarLong(zigzag(time - previousTime));
+			writeVarLong(zigzag(latitude - previousLatitude));
+			writeVarLong(zigzag(longitude - previousLongitude));
+			previousTime = time;
+			previousLatitude = latitude;
+			previousLongitude = longitude;
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+			count++;
+		}
+
+		void seal() {
+			data = Arrays.copyOf(data, length);
+		}
+
+		ChunkView view() {
+			return new ChunkView(this, data, count, minTime, maxTime);
+		}
+
+		private void writeVarLong(long value) {
+			if (length + 10 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			while ((value & ~0x7FL) != 0) {
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[length++] = (byte) value;
+		}
+
+		private static long zigzag(long value) {
+			return (value << 1) ^ (value >> 63);
+		}
+	}
+
+	/**
+	 * State of a chunk captured under the history's lock. Appends only write past the captured entries,
+	 * and a growing chunk copies its data to a new array, so the view can be decoded without locking.
+	 */
+	private static final class ChunkView {
+		private final Chunk chunk;
+		private final byte[] data;
+		private final int count;
+		private final long minTime;
+		private final long maxTime;
+		private int position;
+
+		ChunkView(Chunk chunk, byte[] data, int count, long minTime, long maxTime) {
+			this.chunk = chunk;
+			this.data = data;
+			this.count = count;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+		}
+
+		/**
+		 * Decodes the entries of the chunk from position first, inclusive, to position end, exclusive,
+		 * passing those within the time range to the consumer. The entries before first are decoded
+		 * but not passed, each difference depending on the previous entry.
+		 */
+		void decode(int first, int end, long from, long to, LocationConsumer consumer) {
+			long time = chunk.firstTime;
+			long latitude = chunk.firstLatitude;
+			long longitude = chunk.firstLongitude;
+			position = 0;
+			for (int i = 0; i < Math.min(count, end); i++) {
+				if (i > 0) {
+					time += unzigzag(readVarLong());
+					latitude += unzigzag(readVarLong());
+					longitude += unzigzag(readVarLong());
+				}
+				if (i >= first && time >= from && time <= to) {
+					consumer.accept(time, latitude / COORDINATE_SCALE, longitude / COORDINATE_SCALE);
+				}
+			}
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		private static long unzigzag(long value) {
+			return (value >>> 1) ^ -(value & 1);
+		}
+	}
+}
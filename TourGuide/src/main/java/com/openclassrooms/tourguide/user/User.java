@@ -1,35 +1,56 @@
 package com.openclassrooms.tourguide.user;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
+/**
+ * A user of TourGuide and the state tracked for them.
+ * <p>
+ * The tracker, the reward calculations and the requests all update users from different threads.
+ * Every mutation of a user is made while holding the user's own lock, so the updates of a user are
+ * applied one at a time and none is lost. Reads do not lock: they get the last published state,
+ * as immutable snapshots for the histories, which keep growing without affecting the snapshots already handed out.
+ */
 public class User {
 	private final UUID userId;
 	private final String userName;
-	private String phoneNumber;
-	private String emailAddress;
-	private Date latestLocationTimestamp;
-	private List<VisitedLocation> visitedLocations = new ArrayList<>();
+	// Serializes the mutations of this user
+	private final Object mutationLock = new Object();
+	private volatile String phoneNumber;
+	private volatile String emailAddress;
+	private volatile Date latestLocationTimestamp;
+	// Delta encoded history, the last location is also kept as is since it is read the most
+	private volatile LocationHistory visitedLocations;
+	private volatile VisitedLocation lastVisitedLocation;
+
+	private final AppendLog<UserReward> userRewards = new AppendLog<>();
+	// Names of the rewarded attractions, to tell in constant time whether a reward would be a duplicate
+	private final Set<String> rewardedAttractionNames = ConcurrentHashMap.newKeySet();
+
+	private volatile UserPreferences userPreferences = new UserPreferences();
+	private volatile List<Provider> tripDeals = Collections.emptyList();
+
+	// Version counters of the resources exposed through the API,
+	// bumped on every change and used by the controller to build ETags
+	private final AtomicLong visitedLocationsVersion = new AtomicLong();
+	private final AtomicLong userRewardsVersion = new AtomicLong();
+	private final AtomicLong tripDealsVersion = new AtomicLong();
 
-	// Modification from a basic List to  a CopyOnWriteArrayList
-	// to resolve the ConcurrentModificationException
-	// in the RewardsService.calculateRewards
-	private CopyOnWriteArrayList<UserReward> userRewards = new CopyOnWriteArrayList<>();
-
-
-	private UserPreferences userPreferences = new UserPreferences();
-	private List<Provider> tripDeals = new ArrayList<>();
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(userId);
 	}
 	
 	public UUID getUserId() {
@@ -41,7 +62,9 @@ public class User {
 	}
 	
 	public void setPhoneNumber(String phoneNumber) {
-		this.phoneNumber = phoneNumber;
+		synchronized (mutationLock) {
+			this.phoneNumber = phoneNumber;
+		}
 	}
 	
 	public String getPhoneNumber() {
@@ -49,7 +72,9 @@ public class User {
 	}
 
 	public void setEmailAddress(String emailAddress) {
-		this.emailAddress = emailAddress;
+		synchronized (mutationLock) {
+			this.emailAddress = emailAddress;
+		}
 	}
 	
 	public String getEmailAddress() {
@@ -57,7 +82,9 @@ public class User {
 	}
 	
 	public void setLatestLocationTimestamp(Date latestLocationTimestamp) {
-		this.latestLocationTimestamp = latestLocationTimestamp;
+		synchronized (mutationLock) {
+			this.latestLocationTimestamp = latestLocationTimestamp;
+		}
 	}
 	
 	public Date getLatestLocationTimestamp() {
@@ -65,50 +92,75 @@ public class User {
 	}
 	
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
-		visitedLocations.add(visitedLocation);
+		synchronized (mutationLock) {
+			visitedLocations.append(visitedLocation);
+			lastVisitedLocation = visitedLocation;
+			visitedLocationsVersion.incrementAndGet();
+		}
 	}
 	
+	/**
+	 * Decodes the history of the user's locations.
+	 * Prefer getLocationHistory to go through a time range without building the whole list.
+	 * @return A new list holding the visited locations, in the order they were added.
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
+		return visitedLocations.toList();
+	}
+
+	public LocationHistory getLocationHistory() {
 		return visitedLocations;
 	}
+
+	public int getVisitedLocationCount() {
+		return visitedLocations.size();
+	}
 	
 	public void clearVisitedLocations() {
-		visitedLocations.clear();
+		synchronized (mutationLock) {
+			visitedLocations = new LocationHistory(userId);
+			lastVisitedLocation = null;
+			visitedLocationsVersion.incrementAndGet();
+		}
 	}
 
-	public void addUserReward(UserReward userReward) {
-
-		String attractionName = userReward.attraction.attractionName;
-
-		// Verify if the reward is not already in the list without modifying it
-		boolean exists = false;
-		for (UserReward reward : userRewards) {
-			if (reward.attraction.attractionName.equals(attractionName)) {
-				exists = true;
-				break;
+	/**
+	 * Adds a reward unless the user already has one for the same attraction.
+	 * @param userReward The reward to add.
+	 * @return True if the reward was added, false if it was a duplicate.
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		synchronized (mutationLock) {
+			if (!rewardedAttractionNames.add(userReward.attraction.attractionName)) {
+				return false;
 			}
+			userRewards.append(userReward);
+			userRewardsVersion.incrementAndGet();
+			return true;
 		}
+	}
 
-		if (!exists) {
-			userRewards.add(userReward);
-		}
+	/**
+	 * Tells whether the user already has a reward for the given attraction.
+	 * @param attraction The attraction.
+	 * @return True if a reward for the attraction was added.
+	 */
+	public boolean hasRewardFor(Attraction attraction) {
+		return rewardedAttractionNames.contains(attraction.attractionName);
 	}
 
 	public boolean canAddReward(UserReward userReward)
 	{
-		String attractionName = userReward.attraction.attractionName;
 		// Verify if the reward is not already in the list without modifying it
-		for (UserReward reward : userRewards) {
-			if (reward.attraction.attractionName.equals(attractionName)) {
-				return true;
-			}
-		}
-		return false;
+		return rewardedAttractionNames.contains(userReward.attraction.attractionName);
 	}
 
-
-	public CopyOnWriteArrayList<UserReward> getUserRewards() {
-		return userRewards;
+	/**
+	 * Retrieves the rewards of the user.
+	 * @return An immutable snapshot of the rewards added so far, not affected by the rewards added later.
+	 */
+	public List<UserReward> getUserRewards() {
+		return userRewards.snapshot();
 	}
 	
 	public UserPreferences getUserPreferences() {
@@ -116,21 +168,38 @@ public class User {
 	}
 	
 	public void setUserPreferences(UserPreferences userPreferences) {
-		this.userPreferences = userPreferences;
+		synchronized (mutationLock) {
+			this.userPreferences = userPreferences;
+		}
 	}
 
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return lastVisitedLocation;
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
-		this.tripDeals = tripDeals;
+		synchronized (mutationLock) {
+			this.tripDeals = tripDeals;
+			tripDealsVersion.incrementAndGet();
+		}
 	}
 	
 	public List<Provider> getTripDeals() {
 		return tripDeals;
 	}
 
+	public long getVisitedLocationsVersion() {
+		return visitedLocationsVersion.get();
+	}
+
+	public long getUserRewardsVersion() {
+		return userRewardsVersion.get();
+	}
+
+	public long getTripDealsVersion() {
+		return tripDealsVersion.get();
+	}
+
 	@Override
 	public String toString() {
 		return "User{" +
@@ -139,8 +208,8 @@ public class User {
 				", phoneNumber='" + phoneNumber + '\'' +
 				", emailAddress='" + emailAddress + '\'' +
 				", latestLocationTimestamp=" + latestLocationTimestamp +
-				", visitedLocations=" + visitedLocations +
-				", userRewards=" + userRewards +
+				", visitedLocations=" + visitedLocations.size() +
+				", userRewards=" + getUserRewards() +
 				", userPreferences=" + userPreferences +
 				", tripDeals=" + tripDeals +
 				'}';
@@ -7,7 +7,8 @@ public class UserReward {
 
 	public final VisitedLocation visitedLocation;
 	public final Attraction attraction;
-	private int rewardPoints;
+	// Fixed once granted, the leaderboard totals being kept from the points of the rewards added
+	private final int rewardPoints;
 	public UserReward(VisitedLocation visitedLocation, Attraction attraction, int rewardPoints) {
 		this.visitedLocation = visitedLocation;
 		this.attraction = attraction;
@@ -15,12 +16,7 @@ public class UserReward {
 	}
 	
 	public UserReward(VisitedLocation visitedLocation, Attraction attraction) {
-		this.visitedLocation = visitedLocation;
-		this.attraction = attraction;
-	}
-
-	public void setRewardPoints(int rewardPoints) {
-		this.rewardPoints = rewardPoints;
+		this(visitedLocation, attraction, 0);
 	}
 	
 	public int getRewardPoints() {
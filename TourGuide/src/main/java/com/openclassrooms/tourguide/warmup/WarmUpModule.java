@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.warmup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Registers the warm-up, unless tourguide.warmup.enabled is false.
+ */
+@Configuration
+@EnableConfigurationProperties(WarmUpProperties.class)
+@ConditionalOnProperty(prefix = "tourguide.warmup", name = "enabled", matchIfMissing = true)
+public class WarmUpModule {
+
+	@Bean
+	public WarmUpRunner getWarmUpRunner(WarmUpProperties properties, TourGuideService tourGuideService,
+			RewardsService rewardsService) {
+		return new WarmUpRunner(properties, tourGuideService, rewardsService);
+	}
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.tourguide.warmup;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the warm-up run before the application reports itself ready.
+ */
+@ConfigurationProperties(prefix = "tourguide.warmup")
+public class WarmUpProperties {
+	private boolean enabled = true;
+	// Synthetic users tracked by the warm-up tracking pass
+	private int sampleUsers = 10;
+	// Locations the distance computations are run from
+	private int distanceIterations = 20000;
+	// Beyond which the warm-up is abandoned and the application reports itself ready anyway
+	private Duration timeout = Duration.ofSeconds(30);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getSampleUsers() {
+		return sampleUsers;
+	}
+
+	public void setSampleUsers(int sampleUsers) {
+		this.sampleUsers = sampleUsers;
+	}
+
+	public int getDistanceIterations() {
+		return distanceIterations;
+	}
+
+	public void setDistanceIterations(int distanceIterations) {
+		this.distanceIterations = distanceIterations;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+}
@@ -0,0 +1,142 @@
+package com.openclassrooms.tourguide.warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.service.AttractionCatalog;
+import com.openclassrooms.tourguide.service.BulkTask;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Warms the application up before it serves traffic.
+ * <p>
+ * Spring Boot runs the application runners before reporting the application ready, so the readiness
+ * probe answers out of service, and the Tracker is not started, until the warm-up completes.
+ * The warm-up loads the attraction catalog, runs the distance computations until the JIT compiles them,
+ * calls the rewards upstream once, and tracks a few synthetic users the way the Tracker would.
+ * <p>
+ * The synthetic users are never added to the user store, and hold a reward for every attraction already,
+ * so that tracking them goes through the GPS and rewards calculation paths without granting any reward:
+ * the real users, the leaderboard and the reward streams are left untouched.
+ */
+public class WarmUpRunner implements ApplicationRunner {
+	private Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+	private final WarmUpProperties properties;
+	private final TourGuideService tourGuideService;
+	private final RewardsService rewardsService;
+
+	public WarmUpRunner(WarmUpProperties properties, TourGuideService tourGuideService, RewardsService rewardsService) {
+		this.properties = properties;
+		this.tourGuideService = tourGuideService;
+		this.rewardsService = rewardsService;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		StopWatch stopWatch = StopWatch.createStarted();
+		long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+		try {
+			warmUp(deadline);
+			logger.info("Warm-up completed in " + stopWatch.getTime() + " ms");
+		} catch (TimeoutException e) {
+			logger.warn("Warm-up abandoned after " + stopWatch.getTime() + " ms");
+		} catch (RuntimeException | ExecutionException e) {
+			// A failed warm-up only leaves the application cold
+			logger.warn("Warm-up failed after " + stopWatch.getTime() + " ms: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void warmUp(long deadline) throws ExecutionException, InterruptedException, TimeoutException {
+		AttractionCatalog attractionCatalog = rewardsService.getAttractionCatalog();
+		List<Attraction> attractions = attractionCatalog.getAttractions();
+		logger.debug("Warm-up: " + attractions.size() + " attractions loaded");
+
+		primeDistances(attractionCatalog, deadline);
+
+		List<User> sampleUsers = syntheticUsers(attractions);
+		if (sampleUsers.isEmpty()) {
+			return;
+		}
+		tourGuideService.getNearByAttractions(sampleUsers, 5);
+		if (!attractions.isEmpty()) {
+			rewardsService.getRewardPoints(attractions.get(0), sampleUsers.get(0));
+		}
+
+		// Tracks the sample in the background lane, as the Tracker does
+		BulkTask<User> trackingPass = tourGuideService.createTrackingTask(sampleUsers);
+		try {
+			CompletableFuture.runAsync(trackingPass::run).get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			trackingPass.cancel();
+			throw e;
+		}
+		logger.debug("Warm-up: " + trackingPass.getCompleted() + " users tracked");
+	}
+
+	/**
+	 * Builds throwaway users, each at a fresh location and holding a reward for every attraction.
+	 */
+	private List<User> syntheticUsers(List<Attraction> attractions) {
+		SplittableRandom random = new SplittableRandom(1);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < properties.getSampleUsers(); i++) {
+			User user = new User(UUID.randomUUID(), "warmUp" + i, "000", "warmUp" + i + "@tourGuide.com");
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(),
+					new Location(random.nextDouble(-85, 85), random.nextDouble(-180, 180)), new Date());
+			user.addToVisitedLocations(visitedLocation);
+			for (Attraction attraction : attractions) {
+				user.addUserReward(new UserReward(visitedLocation, attraction, 0));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+
+	private void primeDistances(AttractionCatalog attractionCatalog, long deadline) throws TimeoutException {
+		SplittableRandom random = new SplittableRandom(0);
+		List<Attraction> attractions = attractionCatalog.getAttractions();
+		double checksum = 0;
+		for (int i = 0; i < properties.getDistanceIterations(); i++) {
+			if (i % 1000 == 0 && System.nanoTime() > deadline) {
+				throw new TimeoutException();
+			}
+			Location location = new Location(random.nextDouble(-85, 85), random.nextDouble(-180, 180));
+			checksum += attractionCatalog.getCoordinates()
+					.nearest(location, rewardsService.getAttractionProximityRange(), 5).size();
+			for (Attraction attraction : attractions) {
+				checksum += rewardsService.getDistance(attraction, location);
+			}
+		}
+		// Used so that the JIT cannot drop the computations
+		logger.debug("Warm-up: distances primed (" + (long) checksum + ")");
+	}
+
+	private static long remainingNanos(long deadline) throws TimeoutException {
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0) {
+			throw new TimeoutException();
+		}
+		return remaining;
+	}
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+import com.openclassrooms.tourguide.upstream.limit.AdaptiveLimiter;
+import com.openclassrooms.tourguide.upstream.limit.LimiterProperties;
+
+public class TestAdaptiveLimiter {
+
+	@Test
+	public void limitRisesWhileTheUpstreamKeepsUp() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("test", limiterProperties(4));
+		ExecutorService executorService = Executors.newFixedThreadPool(16);
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			futures.add(CompletableFuture.runAsync(() -> limiter.call(() -> sleep(2)), executorService));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		executorService.shutdown();
+
+		assertTrue(limiter.getLimit() > 4, "Limit " + limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void limitBacksOffOnFailures() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("test", limiterProperties(100));
+		for (int i = 0; i < 10; i++) {
+			assertThrows(IllegalStateException.class, () -> limiter.call(() -> {
+				sleep(1);
+				throw new IllegalStateException("Upstream failure");
+			}));
+		}
+
+		assertTrue(limiter.getLimit() < 100, "Limit " + limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void callsBeyondTheLimitWaitThenFail() throws Exception {
+		LimiterProperties properties = limiterProperties(1);
+		properties.setMaxWait(Duration.ofMillis(100));
+		AdaptiveLimiter limiter = new AdaptiveLimiter("test", properties);
+		CountDownLatch inCall = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Object> blocking = CompletableFuture.supplyAsync(() -> limiter.call(() -> {
+			inCall.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		inCall.await();
+
+		assertThrows(UpstreamUnavailableException.class, () -> limiter.call(() -> null));
+		release.countDown();
+		blocking.join();
+	}
+
+	private static LimiterProperties limiterProperties(int initialLimit) {
+		LimiterProperties properties = new LimiterProperties();
+		properties.setInitialLimit(initialLimit);
+		properties.setMinLimit(1);
+		properties.setMaxLimit(1000);
+		return properties;
+	}
+
+	private static Void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+}
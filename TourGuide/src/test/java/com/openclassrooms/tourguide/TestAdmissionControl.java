@@ -0,0 +1,83 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.openclassrooms.tourguide.admission.AdmissionControlFilter;
+import com.openclassrooms.tourguide.admission.AdmissionControlProperties;
+import com.openclassrooms.tourguide.admission.EndpointLimit;
+import jakarta.servlet.http.HttpServlet;
+
+public class TestAdmissionControl {
+
+	@Test
+	public void rejectsWhenTheQueueIsFull() throws Exception {
+		AdmissionControlFilter filter = filter(new EndpointLimit(1, 0, Duration.ofSeconds(5)));
+		CountDownLatch inHandler = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(request(), response, new MockFilterChain(new HttpServlet() {
+					@Override
+					protected void service(jakarta.servlet.http.HttpServletRequest req,
+							jakarta.servlet.http.HttpServletResponse resp) {
+						inHandler.countDown();
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return response;
+		});
+		inHandler.await();
+
+		MockHttpServletResponse second = new MockHttpServletResponse();
+		filter.doFilter(request(), second, new MockFilterChain());
+		release.countDown();
+
+		assertEquals(429, second.getStatus());
+		assertEquals(200, first.get().getStatus());
+	}
+
+	@Test
+	public void dropsRequestsThatAlreadyWaitedPastTheirBudget() throws Exception {
+		AdmissionControlFilter filter = filter(new EndpointLimit(10, 10, Duration.ofMillis(500)));
+		MockHttpServletRequest lateRequest = request();
+		lateRequest.addHeader("X-Request-Start", "t=" + (System.currentTimeMillis() - 1000));
+		MockFilterChain chain = new MockFilterChain();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(lateRequest, response, chain);
+
+		assertEquals(503, response.getStatus());
+		assertEquals(null, chain.getRequest());
+	}
+
+	private AdmissionControlFilter filter(EndpointLimit limit) {
+		AdmissionControlProperties properties = new AdmissionControlProperties();
+		properties.setEndpoints(Map.of("getRewards", limit));
+		return new AdmissionControlFilter(properties, List.of("/getRewards"));
+	}
+
+	private MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/getRewards");
+	}
+
+}
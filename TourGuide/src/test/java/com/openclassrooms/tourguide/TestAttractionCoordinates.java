@@ -0,0 +1,85 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.service.AttractionCoordinates;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+public class TestAttractionCoordinates {
+
+	@Test
+	public void ranksLikeTheDistanceOneAttractionAtATime() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionCoordinates attractionCoordinates = new AttractionCoordinates(attractions);
+		Random random = new Random(7);
+
+		for (int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+			double maxDistance = i % 2 == 0 ? 10000 : 3000;
+
+			List<Attraction> expected = new ArrayList<>();
+			for (Attraction attraction : attractions) {
+				if (rewardsService.getDistance(attraction, location) <= maxDistance) {
+					expected.add(attraction);
+				}
+			}
+			expected.sort(Comparator.comparingDouble(attraction -> rewardsService.getDistance(attraction, location)));
+
+			AttractionCoordinates.Nearest nearest = attractionCoordinates.nearest(location, maxDistance, 5);
+			assertEquals(Math.min(5, expected.size()), nearest.size());
+			for (int rank = 0; rank < nearest.size(); rank++) {
+				Attraction attraction = attractionCoordinates.getAttraction(nearest.getIndex(rank));
+				assertEquals(rewardsService.getDistance(expected.get(rank), location), nearest.getDistance(rank), 1e-6);
+				assertEquals(rewardsService.getDistance(attraction, location), nearest.getDistance(rank), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void findsTheAttractionsInARing() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Random random = new Random(7);
+		List<Attraction> attractions = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			attractions.add(new Attraction("Attraction " + i, "City", "State", random.nextDouble() * 180 - 90,
+					random.nextDouble() * 360 - 180));
+		}
+		AttractionCoordinates attractionCoordinates = new AttractionCoordinates(attractions);
+
+		for (int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+			double minDistance = i % 3 == 0 ? -1 : random.nextDouble() * 1000;
+			double maxDistance = Math.max(0, minDistance) + random.nextDouble() * (i % 2 == 0 ? 200 : 5000);
+
+			Set<Integer> ring = new HashSet<>();
+			for (int index : attractionCoordinates.within(location, minDistance, maxDistance)) {
+				double distance = rewardsService.getDistance(attractionCoordinates.getAttraction(index), location);
+				assertTrue(distance > minDistance - 1e-6 && distance <= maxDistance + 1e-6);
+				ring.add(index);
+			}
+			for (int index = 0; index < attractionCoordinates.size(); index++) {
+				double distance = rewardsService.getDistance(attractionCoordinates.getAttraction(index), location);
+				if (distance > minDistance + 1e-6 && distance <= maxDistance - 1e-6) {
+					assertTrue(ring.contains(index));
+				}
+			}
+		}
+	}
+}
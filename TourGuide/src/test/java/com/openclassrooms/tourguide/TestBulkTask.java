@@ -0,0 +1,95 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.service.BulkTask;
+
+public class TestBulkTask {
+
+	@Test
+	public void neverExceedsTheWindow() {
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxObserved = new AtomicInteger();
+		List<Integer> items = IntStream.range(0, 2000).boxed().toList();
+
+		BulkTask<Integer> bulkTask = new BulkTask<>("Test", items, items.size(), 10, item -> {
+			maxObserved.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			return CompletableFuture.runAsync(() -> {
+				if (item % 100 == 0) {
+					throw new IllegalStateException("failing item " + item);
+				}
+			}, executor).whenComplete((result, ex) -> inFlight.decrementAndGet());
+		});
+		bulkTask.run();
+		executor.shutdown();
+
+		assertTrue(maxObserved.get() <= 10);
+		assertEquals(2000, bulkTask.getCompleted());
+		assertEquals(20, bulkTask.getFailed());
+	}
+
+	@Test
+	public void stopsSubmittingOnceCancelled() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+		AtomicInteger processed = new AtomicInteger();
+
+		AtomicReference<BulkTask<Integer>> bulkTask = new AtomicReference<>();
+		bulkTask.set(new BulkTask<>("Test", items, items.size(), 4, item -> CompletableFuture.runAsync(() -> {
+			if (processed.incrementAndGet() == 50) {
+				bulkTask.get().cancel();
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, executor)));
+		bulkTask.get().run();
+		executor.shutdown();
+
+		assertTrue(bulkTask.get().isCancelled());
+		assertTrue(bulkTask.get().getSubmitted() < 100);
+		assertEquals(bulkTask.get().getSubmitted(), bulkTask.get().getCompleted());
+	}
+
+	@Test
+	public void waitsForTheTasksInFlightWhenInterrupted() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+		Thread runner = Thread.currentThread();
+		AtomicInteger processed = new AtomicInteger();
+
+		BulkTask<Integer> bulkTask = new BulkTask<>("Test", items, items.size(), 4, item -> CompletableFuture.runAsync(() -> {
+			if (processed.incrementAndGet() == 50) {
+				runner.interrupt();
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, executor));
+		bulkTask.run();
+		boolean interrupted = Thread.interrupted();
+		executor.shutdown();
+
+		assertTrue(interrupted);
+		assertTrue(bulkTask.isCancelled());
+		assertEquals(bulkTask.getSubmitted(), bulkTask.getCompleted());
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.load.HttpLoadGenerator;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * HTTP-level load test of the TourGuideController endpoints, run with the load-test profile:
+ * <p>
+ * mvn test -Pload-test -Dtourguide.loadtest.rate=100 -Dtourguide.loadtest.concurrency=64
+ * <p>
+ * Available settings (system properties prefixed by tourguide.loadtest.):
+ * users, rate (requests per second), concurrency, warmUpSeconds, durationSeconds and report (output file).
+ */
+@EnabledIfSystemProperty(named = "tourguide.loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TestControllerLoad {
+
+	private static final List<String> ENDPOINTS = List.of("/getLocation", "/getNearbyAttractions", "/getRewards",
+			"/getTripDeals");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TourGuideService tourGuideService;
+
+	@BeforeAll
+	public static void setUpUsers() {
+		// Read by TourGuideService when the application context starts
+		InternalTestHelper.setInternalUserNumber(Integer.getInteger("tourguide.loadtest.users", 1000));
+	}
+
+	@Test
+	public void loadAllEndpoints() throws Exception {
+		List<String> userNames = tourGuideService.getAllUsers().stream()
+				.map(User::getUserName)
+				.collect(Collectors.toList());
+
+		HttpLoadGenerator loadGenerator = new HttpLoadGenerator(URI.create("http://localhost:" + port),
+				ENDPOINTS,
+				userNames,
+				Integer.getInteger("tourguide.loadtest.rate", 50),
+				Integer.getInteger("tourguide.loadtest.concurrency", 32),
+				Duration.ofSeconds(Integer.getInteger("tourguide.loadtest.warmUpSeconds", 10)),
+				Duration.ofSeconds(Integer.getInteger("tourguide.loadtest.durationSeconds", 60)));
+
+		HttpLoadGenerator.LoadReport report = loadGenerator.run();
+		Path reportPath = Path.of(System.getProperty("tourguide.loadtest.report", "target/load-test-report.json"));
+		report.writeTo(reportPath);
+		tourGuideService.tracker.stopTracking();
+
+		System.out.println("Load test report written to " + reportPath.toAbsolutePath());
+		assertEquals(0, report.getTotalErrors());
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestFlightRecorderEvents {
+
+	@Test
+	public void trackingEmitsEvents() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		Path file = Files.createTempFile("tourguide", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.openclassrooms.tourguide.TrackUserLocation");
+			recording.enable("com.openclassrooms.tourguide.CalculateRewards");
+			recording.start();
+			tourGuideService.trackUserLocation(user);
+			recording.stop();
+			recording.dump(file);
+		} finally {
+			tourGuideService.tracker.stopTracking();
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.deleteIfExists(file);
+		RecordedEvent tracking = events.stream()
+				.filter(event -> event.getEventType().getName().equals("com.openclassrooms.tourguide.TrackUserLocation"))
+				.findFirst().orElseThrow();
+		assertEquals(user.getUserId().toString(), tracking.getString("userId"));
+		assertEquals(1, tracking.getInt("visitedLocationCount"));
+		assertTrue(events.stream()
+				.anyMatch(event -> event.getEventType().getName().equals("com.openclassrooms.tourguide.CalculateRewards")
+						&& event.getInt("locationsEvaluated") == 1));
+	}
+
+	@Test
+	public void failedUpstreamCallsEmitEvents() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new GpsUtilGateway(gpsUtil), (attractionId, userId) -> {
+			throw new UpstreamUnavailableException("Rewards upstream down for the test");
+		});
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		Path file = Files.createTempFile("tourguide", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.openclassrooms.tourguide.RewardPoints");
+			recording.start();
+			assertThrows(UpstreamUnavailableException.class, () -> rewardsService.getRewardPoints(attraction, user));
+			recording.stop();
+			recording.dump(file);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.deleteIfExists(file);
+		RecordedEvent rewardPoints = events.stream()
+				.filter(event -> event.getEventType().getName().equals("com.openclassrooms.tourguide.RewardPoints"))
+				.findFirst().orElseThrow();
+		assertEquals(user.getUserId().toString(), rewardPoints.getString("userId"));
+		assertEquals(attraction.attractionName, rewardPoints.getString("attractionName"));
+		assertTrue(rewardPoints.getString("failure").contains("Rewards upstream down for the test"));
+	}
+}
@@ -0,0 +1,110 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.hedging.HedgingGpsGateway;
+import com.openclassrooms.tourguide.upstream.hedging.HedgingProperties;
+
+public class TestHedgingGpsGateway {
+
+	@Test
+	public void slowCallIsHedged() {
+		SlowOnDemandGpsGateway upstream = new SlowOnDemandGpsGateway();
+		HedgingGpsGateway gateway = new HedgingGpsGateway(upstream, hedgingProperties(100));
+		UUID userId = UUID.randomUUID();
+
+		for (int i = 0; i < 50; i++) {
+			gateway.getUserLocation(userId);
+		}
+		// Fast calls a little slower than the percentile may have been hedged too
+		long hedgesWon = gateway.getHedgesWon();
+		upstream.slowNext.set(true);
+		long start = System.nanoTime();
+		VisitedLocation visitedLocation = gateway.getUserLocation(userId);
+		long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+		assertEquals(userId, visitedLocation.userId);
+		assertTrue(elapsedMillis < 1000, "Took " + elapsedMillis + " ms");
+		assertEquals(hedgesWon + 1, gateway.getHedgesWon());
+	}
+
+	@Test
+	public void noHedgeBeyondTheBudget() {
+		SlowOnDemandGpsGateway upstream = new SlowOnDemandGpsGateway();
+		HedgingProperties properties = hedgingProperties(0);
+		properties.setBudget(0);
+		HedgingGpsGateway gateway = new HedgingGpsGateway(upstream, properties);
+		UUID userId = UUID.randomUUID();
+
+		for (int i = 0; i < 50; i++) {
+			gateway.getUserLocation(userId);
+		}
+		upstream.slowNext.set(true);
+		gateway.getUserLocation(userId);
+
+		assertEquals(0, gateway.getHedgedCalls());
+		assertEquals(51, upstream.calls.get());
+	}
+
+	@Test
+	public void callsOnTheCallerThreadUntilMeasured() {
+		SlowOnDemandGpsGateway upstream = new SlowOnDemandGpsGateway();
+		HedgingGpsGateway gateway = new HedgingGpsGateway(upstream, hedgingProperties(10));
+
+		gateway.getUserLocation(UUID.randomUUID());
+		gateway.destroy();
+
+		assertEquals(Thread.currentThread(), upstream.lastCaller);
+		assertTrue(gateway.isShutdown());
+	}
+
+	private static HedgingProperties hedgingProperties(int maxBurst) {
+		HedgingProperties properties = new HedgingProperties();
+		properties.setEnabled(true);
+		properties.setPercentile(95);
+		properties.setMinSamples(20);
+		properties.setWindow(Duration.ZERO);
+		properties.setMaxBurst(maxBurst);
+		return properties;
+	}
+
+	/**
+	 * Answers within a few milliseconds, except for the call following slowNext being set, which takes 2 seconds.
+	 */
+	private static class SlowOnDemandGpsGateway implements GpsGateway {
+		private final AtomicBoolean slowNext = new AtomicBoolean();
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile Thread lastCaller;
+
+		@Override
+		public VisitedLocation getUserLocation(UUID userId) {
+			calls.incrementAndGet();
+			lastCaller = Thread.currentThread();
+			try {
+				Thread.sleep(slowNext.compareAndSet(true, false) ? 2000 : 2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new VisitedLocation(userId, new Location(1, 2), new Date());
+		}
+
+		@Override
+		public List<Attraction> getAttractions() {
+			return List.of();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.LocationHistory;
+
+public class TestLocationHistory {
+
+	@Test
+	public void decodesWhatWasAppended() {
+		UUID userId = UUID.randomUUID();
+		LocationHistory history = new LocationHistory(userId);
+		Random random = new Random(1);
+		List<VisitedLocation> appended = new ArrayList<>();
+		long time = 1_700_000_000_000L;
+		for (int i = 0; i < 1000; i++) {
+			// Jumps around the globe and back in time as well as small steps
+			time += random.nextInt(600_000) - 60_000;
+			VisitedLocation visitedLocation = new VisitedLocation(userId,
+					new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180), new Date(time));
+			history.append(visitedLocation);
+			appended.add(visitedLocation);
+		}
+
+		List<VisitedLocation> decoded = history.toList();
+		assertEquals(appended.size(), decoded.size());
+		for (int i = 0; i < appended.size(); i++) {
+			assertEquals(appended.get(i).timeVisited, decoded.get(i).timeVisited);
+			assertEquals(appended.get(i).location.latitude, decoded.get(i).location.latitude, 1e-6);
+			assertEquals(appended.get(i).location.longitude, decoded.get(i).location.longitude, 1e-6);
+			assertEquals(userId, decoded.get(i).userId);
+		}
+	}
+
+	@Test
+	public void readsOnlyTheRequestedTimeRange() {
+		LocationHistory chronological = new LocationHistory(UUID.randomUUID());
+		LocationHistory shuffled = new LocationHistory(UUID.randomUUID());
+		List<Long> times = new ArrayList<>();
+		for (long time = 0; time < 10_000; time++) {
+			times.add(time * 1000);
+			chronological.append(new VisitedLocation(UUID.randomUUID(), new Location(48.85, 2.35), new Date(time * 1000)));
+		}
+		Collections.shuffle(times, new Random(1));
+		times.forEach(time -> shuffled.append(new VisitedLocation(UUID.randomUUID(), new Location(48.85, 2.35), new Date(time))));
+
+		for (LocationHistory history : List.of(chronological, shuffled)) {
+			List<Long> inRange = new ArrayList<>();
+			history.forEach(2_500_000, 2_600_000, (time, latitude, longitude) -> inRange.add(time));
+			assertEquals(101, inRange.size());
+			inRange.forEach(time -> assertEquals(true, time >= 2_500_000 && time <= 2_600_000));
+		}
+	}
+
+	@Test
+	public void decodesTheEntriesBetweenTwoPositions() {
+		LocationHistory history = new LocationHistory(UUID.randomUUID());
+		for (long time = 0; time < 1000; time++) {
+			// Out of order, positions being those of the appends
+			history.append(new VisitedLocation(UUID.randomUUID(), new Location(48.85, 2.35), new Date(999 - time)));
+		}
+
+		for (int[] range : new int[][] { { 0, 1000 }, { 130, 131 }, { 127, 513 }, { 990, 1000 }, { 1000, 1000 } }) {
+			List<VisitedLocation> decoded = history.toList(range[0], range[1]);
+			assertEquals(range[1] - range[0], decoded.size());
+			for (int i = 0; i < decoded.size(); i++) {
+				assertEquals(999 - (range[0] + i), decoded.get(i).timeVisited.getTime());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import com.openclassrooms.tourguide.service.AttractionCoordinates;
+import com.openclassrooms.tourguide.service.NearbyAttractionsCache;
+
+public class TestNearbyAttractionsCache {
+
+	@Test
+	public void ranksLikeWithoutTheCache() {
+		Random random = new Random(7);
+		AttractionCoordinates attractionCoordinates = new AttractionCoordinates(randomAttractions(random, 2000));
+		// Cells of various sizes, the larger the more candidates to rank exactly
+		for (double cellDegrees : new double[] { 0.01, 0.5, 5 }) {
+			NearbyAttractionsCache cache = new NearbyAttractionsCache(cellDegrees, 100);
+			for (int i = 0; i < 5000; i++) {
+				// Crowds around a few spots, and some users anywhere
+				Location location = i % 10 == 0
+						? new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180)
+						: new Location(40 + (i % 3) + random.nextGaussian() * cellDegrees,
+								-100 + (i % 3) + random.nextGaussian() * cellDegrees);
+				double maxDistance = i % 2 == 0 ? 10000 : 50;
+				int limit = i % 4 < 2 ? 5 : 1;
+
+				AttractionCoordinates.Nearest expected = attractionCoordinates.nearest(location, maxDistance, limit);
+				AttractionCoordinates.Nearest nearest = cache.nearest(attractionCoordinates, location, maxDistance, limit);
+				assertEquals(expected.size(), nearest.size());
+				for (int rank = 0; rank < nearest.size(); rank++) {
+					assertEquals(expected.getIndex(rank), nearest.getIndex(rank));
+					assertEquals(expected.getDistance(rank), nearest.getDistance(rank));
+				}
+			}
+			assertTrue(cache.getHits() > 0);
+			assertTrue(cache.size() <= 100);
+		}
+	}
+
+	@Test
+	public void newAttractionsDropTheCells() {
+		Random random = new Random(7);
+		AttractionCoordinates attractionCoordinates = new AttractionCoordinates(randomAttractions(random, 100));
+		NearbyAttractionsCache cache = new NearbyAttractionsCache(0.01, 100);
+		Location location = new Location(48.8584, 2.2945);
+		cache.nearest(attractionCoordinates, location, 10000, 5);
+
+		List<Attraction> attractions = randomAttractions(random, 100);
+		attractions.add(new Attraction("Eiffel Tower", "Paris", "France", 48.8584, 2.2945));
+		AttractionCoordinates newCoordinates = new AttractionCoordinates(attractions);
+		AttractionCoordinates.Nearest nearest = cache.nearest(newCoordinates, location, 10000, 5);
+
+		assertEquals("Eiffel Tower", newCoordinates.getAttraction(nearest.getIndex(0)).attractionName);
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void staysBoundedWhenUsedConcurrently() throws Exception {
+		AttractionCoordinates attractionCoordinates = new AttractionCoordinates(randomAttractions(new Random(7), 500));
+		NearbyAttractionsCache cache = new NearbyAttractionsCache(0.1, 200);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			Random random = new Random(t);
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 5000; i++) {
+					// A few busy cells, and many visited once
+					Location location = i % 2 == 0
+							? new Location(40 + random.nextInt(3) * 0.1 + 0.05, -100.05)
+							: new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+					AttractionCoordinates.Nearest expected = attractionCoordinates.nearest(location, 10000, 5);
+					AttractionCoordinates.Nearest nearest = cache.nearest(attractionCoordinates, location, 10000, 5);
+					assertEquals(expected.size(), nearest.size());
+					for (int rank = 0; rank < nearest.size(); rank++) {
+						assertEquals(expected.getIndex(rank), nearest.getIndex(rank));
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		// Give or take the cells added while another thread was evicting
+		assertTrue(cache.size() <= 200 + 8, cache.size() + " cells");
+		assertTrue(cache.getHits() > 0);
+	}
+
+	private static List<Attraction> randomAttractions(Random random, int count) {
+		List<Attraction> attractions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			// Half of them in the area of the crowds
+			double latitude = i % 2 == 0 ? 38 + random.nextDouble() * 6 : random.nextDouble() * 170 - 85;
+			double longitude = i % 2 == 0 ? -102 + random.nextDouble() * 6 : random.nextDouble() * 360 - 180;
+			attractions.add(new Attraction("Attraction " + i, "City", "State", latitude, longitude));
+		}
+		return attractions;
+	}
+}
@@ -0,0 +1,108 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardReconciler;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestRewardReconciliation {
+
+	@Test
+	public void rewardsNewAttractions() {
+		FixedAttractionsGpsGateway gpsGateway = new FixedAttractionsGpsGateway();
+		gpsGateway.attractions.add(new Attraction("Eiffel Tower", "Paris", "France", 48.8584, 2.2945));
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 100);
+		TourGuideService tourGuideService = newTourGuideService(gpsGateway, rewardsService);
+		RewardReconciler rewardReconciler = new RewardReconciler(rewardsService, tourGuideService, 2, 0, Duration.ZERO);
+		User user = addUserAt(tourGuideService, new Location(40.69, -74.045));
+		rewardsService.calculateRewards(user);
+		assertEquals(0, user.getUserRewards().size());
+
+		gpsGateway.attractions.add(new Attraction("Statue of Liberty", "New York", "USA", 40.6892, -74.0445));
+		rewardsService.getAttractionCatalog().refresh();
+		rewardReconciler.getLastReconciliation().join();
+
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals("Statue of Liberty", user.getUserRewards().get(0).attraction.attractionName);
+		rewardReconciler.shutdownExecutor();
+	}
+
+	@Test
+	public void rewardsAttractionsWithinAWiderBuffer() {
+		FixedAttractionsGpsGateway gpsGateway = new FixedAttractionsGpsGateway();
+		// About 20 miles north of the user
+		gpsGateway.attractions.add(new Attraction("Lighthouse", "Nowhere", "Ocean", 0.3, 0));
+		// About 7 miles north of another user
+		gpsGateway.attractions.add(new Attraction("Buoy", "Nowhere", "Ocean", 5.1, 0));
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 100);
+		TourGuideService tourGuideService = newTourGuideService(gpsGateway, rewardsService);
+		RewardReconciler rewardReconciler = new RewardReconciler(rewardsService, tourGuideService, 2, 0, Duration.ZERO);
+		User user = addUserAt(tourGuideService, new Location(0, 0));
+		rewardsService.calculateRewards(user);
+		assertEquals(0, user.getUserRewards().size());
+
+		// Never calculated, the attraction within the previous buffer is not rewarded yet either
+		User uncalculated = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		uncalculated.addToVisitedLocations(new VisitedLocation(uncalculated.getUserId(), new Location(5, 0), new Date()));
+		tourGuideService.addUser(uncalculated);
+
+		rewardsService.setProximityBuffer(30);
+		rewardReconciler.getLastReconciliation().join();
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals("Lighthouse", user.getUserRewards().get(0).attraction.attractionName);
+		assertEquals(1, uncalculated.getUserRewards().size());
+		assertEquals("Buoy", uncalculated.getUserRewards().get(0).attraction.attractionName);
+
+		// The next calculation resumes with the reconciled rules, without rewarding twice
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0.3, 0), new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(1, user.getUserRewards().size());
+		rewardReconciler.shutdownExecutor();
+	}
+
+	private static TourGuideService newTourGuideService(GpsGateway gpsGateway, RewardsService rewardsService) {
+		InternalTestHelper.setInternalUserNumber(0);
+		return new TourGuideService(gpsGateway, rewardsService, new TripPricerGateway(new TripPricer()));
+	}
+
+	private static User addUserAt(TourGuideService tourGuideService, Location location) {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date()));
+		tourGuideService.addUser(user);
+		return user;
+	}
+
+	/**
+	 * Answers with the attractions of the test, and locations at the origin.
+	 */
+	private static class FixedAttractionsGpsGateway implements GpsGateway {
+		private final List<Attraction> attractions = new CopyOnWriteArrayList<>();
+
+		@Override
+		public VisitedLocation getUserLocation(UUID userId) {
+			return new VisitedLocation(userId, new Location(0, 0), new Date());
+		}
+
+		@Override
+		public List<Attraction> getAttractions() {
+			return List.copyOf(attractions);
+		}
+	}
+}
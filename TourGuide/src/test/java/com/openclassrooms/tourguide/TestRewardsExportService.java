@@ -0,0 +1,93 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsExportService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestRewardsExportService {
+
+	@Test
+	public void exportsEveryRewardInUserNameOrderAndResumes() throws Exception {
+		TourGuideService tourGuideService = newTourGuideService();
+		// More users than one chunk, added out of order
+		for (int i = 1200; i >= 0; i--) {
+			tourGuideService.addUser(rewardedUser(String.format("user%04d", i), "Disneyland", "Jackson Hole"));
+		}
+		RewardsExportService rewardsExportService = new RewardsExportService(tourGuideService);
+
+		List<String> rows = export(rewardsExportService, RewardsExportService.Format.NDJSON, null);
+		assertEquals(2402, rows.size());
+		ObjectMapper objectMapper = new ObjectMapper();
+		String previousUserName = "";
+		for (String row : rows) {
+			JsonNode reward = objectMapper.readTree(row);
+			String userName = reward.get("userName").asText();
+			assertEquals(true, userName.compareTo(previousUserName) >= 0, userName + " after " + previousUserName);
+			assertEquals(10, reward.get("rewardPoints").asInt());
+			previousUserName = userName;
+		}
+
+		List<String> resumedRows = export(rewardsExportService, RewardsExportService.Format.NDJSON, "user0600");
+		assertEquals(1202, resumedRows.size());
+		assertEquals("user0600", objectMapper.readTree(resumedRows.get(0)).get("userName").asText());
+		rewardsExportService.shutdownExecutor();
+	}
+
+	@Test
+	public void exportsCsvWithQuotedFields() throws Exception {
+		TourGuideService tourGuideService = newTourGuideService();
+		User user = rewardedUser("jon", "Legend Valley, \"The\" Park");
+		tourGuideService.addUser(user);
+		RewardsExportService rewardsExportService = new RewardsExportService(tourGuideService);
+
+		List<String> rows = export(rewardsExportService, RewardsExportService.Format.CSV, null);
+
+		assertEquals(List.of("userName,userId,attractionName,rewardPoints,timeVisited",
+				"jon," + user.getUserId() + ",\"Legend Valley, \"\"The\"\" Park\",10,"
+						+ user.getUserRewards().get(0).visitedLocation.timeVisited.toInstant()), rows);
+		rewardsExportService.shutdownExecutor();
+	}
+
+	private static List<String> export(RewardsExportService rewardsExportService, RewardsExportService.Format format,
+			String fromUserName) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		rewardsExportService.export(outputStream, format, fromUserName);
+		return outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+	}
+
+	private static TourGuideService newTourGuideService() {
+		GpsUtil gpsUtil = new GpsUtil();
+		InternalTestHelper.setInternalUserNumber(0);
+		return new TourGuideService(gpsUtil, new RewardsService(gpsUtil, new RewardCentral()));
+	}
+
+	private static User rewardedUser(String userName, String... attractionNames) {
+		User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+		for (String attractionName : attractionNames) {
+			Attraction attraction = new Attraction(attractionName, "City", "State", 33.817595, -117.922008);
+			user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+		}
+		return user;
+	}
+
+}
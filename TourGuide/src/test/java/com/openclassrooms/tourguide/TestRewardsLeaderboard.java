@@ -0,0 +1,72 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.dto.AttractionRewardStats;
+import com.openclassrooms.tourguide.dto.UserRewardPoints;
+import com.openclassrooms.tourguide.service.RewardsLeaderboard;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestRewardsLeaderboard {
+
+	private final Attraction disneyland = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+	private final Attraction bronxZoo = new Attraction("Bronx Zoo", "Bronx", "NY", 40.852905, -73.872971);
+
+	@Test
+	public void rankUsersByTotalPoints() {
+		RewardsLeaderboard leaderboard = new RewardsLeaderboard(new RewardsService(new GpsUtil(), new RewardCentral()));
+		User jon = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User jane = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+
+		leaderboard.onRewardAdded(jon, reward(jon, disneyland, 100));
+		leaderboard.onRewardAdded(jane, reward(jane, disneyland, 150));
+		leaderboard.onRewardAdded(jon, reward(jon, bronxZoo, 80));
+
+		List<UserRewardPoints> topUsers = leaderboard.getTopUsers(10);
+		assertEquals(2, topUsers.size());
+		assertEquals("jon", topUsers.get(0).getUserName());
+		assertEquals(180, topUsers.get(0).getTotalRewardPoints());
+		assertEquals("jane", topUsers.get(1).getUserName());
+		assertEquals(180, leaderboard.getTotalRewardPoints(jon));
+
+		List<AttractionRewardStats> attractionStats = leaderboard.getAttractionStats();
+		assertEquals("Disneyland", attractionStats.get(0).getAttractionName());
+		assertEquals(2, attractionStats.get(0).getRewardCount());
+		assertEquals(250, attractionStats.get(0).getTotalRewardPoints());
+	}
+
+	@Test
+	public void concurrentRewardsKeepOneEntryPerUser() {
+		RewardsLeaderboard leaderboard = new RewardsLeaderboard(new RewardsService(new GpsUtil(), new RewardCentral()));
+		List<User> users = IntStream.range(0, 50)
+				.mapToObj(i -> new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"))
+				.toList();
+
+		IntStream.range(0, 5000).parallel().forEach(i -> {
+			User user = users.get(i % users.size());
+			leaderboard.onRewardAdded(user, reward(user, disneyland, 1));
+		});
+
+		List<UserRewardPoints> topUsers = leaderboard.getTopUsers(100);
+		assertEquals(50, topUsers.size());
+		topUsers.forEach(userRewardPoints -> assertEquals(100, userRewardPoints.getTotalRewardPoints()));
+	}
+
+	private UserReward reward(User user, Attraction attraction, int points) {
+		return new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, points);
+	}
+
+}
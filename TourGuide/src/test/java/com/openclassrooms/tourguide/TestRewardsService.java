@@ -1,22 +1,29 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.BulkTask;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
 import com.openclassrooms.tourguide.user.User;
 import com.openclassrooms.tourguide.user.UserReward;
 
@@ -65,4 +72,53 @@ public class TestRewardsService {
 		assertEquals(gpsUtil.getAttractions().size(), userRewards.size());
 	}
 
+	@Test
+	public void rewardsLocationsAfterStationaryOnes() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+		Attraction attraction = attractions.get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		// Far from any attraction, in the middle of the Pacific
+		Location ocean = new Location(0, -150);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), ocean, new Date()));
+		rewardsService.calculateRewards(user);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), ocean, new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(0, user.getUserRewards().size());
+
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(1, user.getUserRewards().size());
+
+		// Another buffer gets the locations evaluated again
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		rewardsService.calculateRewards(user);
+		assertEquals(attractions.size(), user.getUserRewards().size());
+	}
+
+	@Test
+	public void reportsFailedCalculations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new GpsUtilGateway(gpsUtil), (attractionId, userId) -> {
+			throw new UpstreamUnavailableException("Rewards upstream down for the test");
+		});
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			// Only the users at an attraction ask the upstream for points
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
+					i % 2 == 0 ? attraction : new Location(0, -150), new Date()));
+			users.add(user);
+		}
+
+		assertThrows(CompletionException.class, () -> rewardsService.calculateRewards(users.get(0)));
+		BulkTask<User> rewardsTask = rewardsService.createRewardsTask(users);
+		rewardsTask.run();
+		assertEquals(10, rewardsTask.getCompleted());
+		assertEquals(5, rewardsTask.getFailed());
+	}
+
 }
@@ -0,0 +1,67 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+import com.openclassrooms.tourguide.upstream.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedTripPricingGateway;
+import com.openclassrooms.tourguide.upstream.simulation.UpstreamProfile;
+import tripPricer.Provider;
+
+public class TestSimulatedUpstreams {
+
+	@Test
+	public void sameSeedGivesSameLocations() {
+		UUID userId = UUID.randomUUID();
+		SimulatedGpsGateway gps = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+		SimulatedGpsGateway sameSeedGps = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+
+		for (int i = 0; i < 10; i++) {
+			VisitedLocation location = gps.getUserLocation(userId);
+			VisitedLocation sameSeedLocation = sameSeedGps.getUserLocation(userId);
+			assertEquals(location.location.latitude, sameSeedLocation.location.latitude);
+			assertEquals(location.location.longitude, sameSeedLocation.location.longitude);
+		}
+		assertEquals(26, gps.getAttractions().size());
+	}
+
+	@Test
+	public void latencyStaysWithinTheProfileBounds() {
+		SplittableRandom random = new SplittableRandom(1);
+		LatencyProfile uniform = new LatencyProfile(LatencyProfile.Distribution.UNIFORM, 10, 20);
+		LatencyProfile longTail = new LatencyProfile(LatencyProfile.Distribution.LONG_TAIL, 10, 500);
+
+		for (int i = 0; i < 1000; i++) {
+			long uniformMicros = uniform.sampleMicros(random);
+			long longTailMicros = longTail.sampleMicros(random);
+			assertTrue(uniformMicros >= 10_000 && uniformMicros <= 20_000);
+			assertTrue(longTailMicros >= 10_000 && longTailMicros <= 500_000);
+		}
+		assertEquals(10_000, new LatencyProfile(LatencyProfile.Distribution.FIXED, 10, 0).sampleMicros(random));
+	}
+
+	@Test
+	public void failingUpstreamThrows() {
+		UpstreamProfile failing = new UpstreamProfile();
+		failing.setErrorRate(1);
+		SimulatedTripPricingGateway tripPricer = new SimulatedTripPricingGateway(failing, 7);
+
+		assertThrows(UpstreamUnavailableException.class,
+				() -> tripPricer.getPrice("key", UUID.randomUUID(), 2, 1, 3, 0));
+
+		List<Provider> providers = new SimulatedTripPricingGateway(new UpstreamProfile(), 7)
+				.getPrice("key", UUID.randomUUID(), 2, 1, 3, 0);
+		assertEquals(5, providers.size());
+	}
+
+}
@@ -0,0 +1,287 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.service.RewardsExportService;
+import com.openclassrooms.tourguide.service.RewardsLeaderboard;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.RewardsStreamService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.UserImportService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+import tripPricer.Provider;
+
+@WebMvcTest(TourGuideController.class)
+@Import({ RewardsStreamService.class, RewardsExportService.class })
+public class TestTourGuideController {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private TourGuideService tourGuideService;
+
+	@MockBean
+	private RewardsService rewardsService;
+
+	@MockBean
+	private RewardsLeaderboard rewardsLeaderboard;
+
+	@MockBean
+	private UserImportService userImportService;
+
+	@Autowired
+	private RewardsStreamService rewardsStreamService;
+
+	@Test
+	public void getRewardsAnswersNotModifiedUntilARewardIsAdded() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		when(tourGuideService.getUserRewards(user)).thenAnswer(invocation -> user.getUserRewards());
+
+		String eTag = mockMvc.perform(get("/getRewards").param("userName", "jon"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/getRewards").param("userName", "jon").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+		// Another format is another body, the JSON one does not validate it
+		mockMvc.perform(get("/getRewards").param("userName", "jon").header(HttpHeaders.IF_NONE_MATCH, eTag)
+						.accept("application/cbor"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/cbor"));
+
+		Attraction attraction = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+		user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+
+		mockMvc.perform(get("/getRewards").param("userName", "jon").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void getTripDealsIsNotPricedAgainWhenTheClientHoldsTheDeals() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		when(tourGuideService.getTripDeals(any(User.class))).thenAnswer(invocation -> {
+			List<Provider> providers = List.of(new Provider(UUID.randomUUID(), "Holiday Travels", 100));
+			user.setTripDeals(providers);
+			return providers;
+		});
+
+		String eTag = mockMvc.perform(get("/getTripDeals").param("userName", "jon"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/getTripDeals").param("userName", "jon").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		verify(tourGuideService, times(1)).getTripDeals(user);
+	}
+
+	@Test
+	public void getTripDealsSendsTheETagOfTheDealsPricedAgain() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		when(tourGuideService.getTripDeals(any(User.class))).thenAnswer(invocation -> {
+			List<Provider> providers = List.of(new Provider(UUID.randomUUID(), "Holiday Travels", 100));
+			user.setTripDeals(providers);
+			return providers;
+		});
+
+		String firstETag = mockMvc.perform(get("/getTripDeals").param("userName", "jon"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		MvcResult repriced = mockMvc.perform(get("/getTripDeals").param("userName", "jon"))
+				.andExpect(status().isOk())
+				.andReturn();
+		String secondETag = repriced.getResponse().getHeader(HttpHeaders.ETAG);
+
+		assertEquals(1, repriced.getResponse().getHeaders(HttpHeaders.ETAG).size());
+		assertNotEquals(firstETag, secondETag);
+		mockMvc.perform(get("/getTripDeals").param("userName", "jon").header(HttpHeaders.IF_NONE_MATCH, secondETag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, secondETag));
+		verify(tourGuideService, times(2)).getTripDeals(user);
+	}
+
+	@Test
+	public void getLocationHistoryStreamsTheLocationsOfTheRange() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		for (long day = 1; day <= 5; day++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(48.85, 2.35 + day),
+					new Date(day * 86_400_000L)));
+		}
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		doCallRealMethod().when(tourGuideService).forEachVisitedLocation(any(), any(), any(), any());
+
+		MvcResult result = mockMvc.perform(get("/getLocationHistory").param("userName", "jon")
+						.param("from", "1970-01-03T00:00:00Z").param("to", "1970-01-04T00:00:00Z"))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].location.longitude").value(4.35))
+				.andExpect(jsonPath("$[1].location.longitude").value(5.35));
+	}
+
+	@Test
+	public void getLocationHistoryAnswersUnknownUsersAndFarRangesBeforeStreaming() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(48.85, 2.35), new Date(86_400_000L)));
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		doCallRealMethod().when(tourGuideService).forEachVisitedLocation(any(), any(), any(), any());
+
+		mockMvc.perform(get("/getLocationHistory").param("userName", "unknown"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/getLocationHistory").param("userName", "jon")
+						.param("from", "1970-01-04T00:00:00Z").param("to", "1970-01-03T00:00:00Z"))
+				.andExpect(status().isBadRequest());
+
+		MvcResult result = mockMvc.perform(get("/getLocationHistory").param("userName", "jon")
+						.param("from", "-1000000000-01-01T00:00:00Z").param("to", "+1000000000-01-01T00:00:00Z"))
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+
+	@Test
+	public void rewardsStreamReplaysFromTheLastEventAndPushesNewRewards() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		for (String name : List.of("Disneyland", "Jackson Hole", "Mojave National Preserve")) {
+			Attraction attraction = new Attraction(name, "City", "ST", 33.817595, -117.922008);
+			user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+		}
+
+		MvcResult result = mockMvc.perform(get("/rewards/stream").param("userName", "jon").header("Last-Event-ID", "1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		awaitContent(result, "id:3");
+		String replayed = result.getResponse().getContentAsString();
+		assertFalse(replayed.contains("id:1\n"));
+		assertTrue(replayed.contains("id:2\n"));
+		assertTrue(replayed.contains("Jackson Hole"));
+
+		Attraction attraction = new Attraction("Joshua Tree National Park", "City", "ST", 33.881866, -115.90065);
+		UserReward userReward = new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10);
+		user.addUserReward(userReward);
+		rewardsStreamService.onRewardAdded(user, userReward);
+		awaitContent(result, "id:4");
+		assertTrue(result.getResponse().getContentAsString().contains("Joshua Tree National Park"));
+
+		mockMvc.perform(post("/rewards/stream").param("userName", "jon"))
+				.andExpect(status().isMethodNotAllowed());
+	}
+
+	@Test
+	public void exportRewardsIsGzippedForClientsAcceptingIt() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+		user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+		when(tourGuideService.getUsersFrom(null, true, 500)).thenReturn(List.of(user));
+
+		MvcResult result = mockMvc.perform(get("/exportRewards").param("format", "csv")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andReturn();
+		MvcResult response = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andReturn();
+
+		try (GZIPInputStream rows = new GZIPInputStream(
+				new ByteArrayInputStream(response.getResponse().getContentAsByteArray()))) {
+			List<String> lines = new String(rows.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+			assertEquals(2, lines.size());
+			assertTrue(lines.get(1).startsWith("jon," + user.getUserId() + ",Disneyland,10,"));
+		}
+		mockMvc.perform(get("/exportRewards").param("format", "xml")).andExpect(status().isBadRequest());
+
+		// Refused with a quality of 0, even when any other encoding is accepted
+		MvcResult refused = mockMvc.perform(get("/exportRewards").param("format", "csv")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *;q=1"))
+				.andReturn();
+		mockMvc.perform(asyncDispatch(refused))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	public void rewardsAreNegotiatedAsCborOrSmile() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+		user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date(1000)), attraction, 10));
+		when(tourGuideService.getUser("jon")).thenReturn(user);
+		when(tourGuideService.getUserRewards(user)).thenAnswer(invocation -> user.getUserRewards());
+
+		byte[] cbor = mockMvc.perform(get("/getRewardsCompact").param("userName", "jon").accept("application/cbor"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/cbor"))
+				.andReturn().getResponse().getContentAsByteArray();
+		CBORMapper cborMapper = new CBORMapper();
+		JsonNode rewards = cborMapper.readTree(cbor);
+		// Written as its 16 bytes rather than as a 36 characters string
+		assertEquals(user.getUserId(), cborMapper.treeToValue(rewards.get("userId"), UUID.class));
+		assertEquals("Disneyland", rewards.get("rewards").get(0).get("attractionName").asText());
+		assertEquals(1000, rewards.get("rewards").get(0).get("timeVisited").asLong());
+
+		byte[] smile = mockMvc.perform(get("/getRewards").param("userName", "jon").accept("application/x-jackson-smile"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(10, new SmileMapper().readTree(smile).get(0).get("rewardPoints").asInt());
+
+		mockMvc.perform(get("/getRewardsCompact").param("userName", "jon"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.rewards[0].rewardPoints").value(10));
+	}
+
+	private static void awaitContent(MvcResult result, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!result.getResponse().getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(result.getResponse().getContentAsString().contains(expected));
+	}
+}
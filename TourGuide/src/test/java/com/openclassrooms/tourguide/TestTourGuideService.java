@@ -1,24 +1,42 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.openclassrooms.tourguide.dto.AttractionDistanceFromUser;
+import com.openclassrooms.tourguide.dto.NearbyAttractionsFromLocation;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.ExecutionLane;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.upstream.GpsGateway;
+import com.openclassrooms.tourguide.upstream.GpsUtilGateway;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
 import com.openclassrooms.tourguide.user.User;
 import tripPricer.Provider;
+import tripPricer.TripPricer;
 
 public class TestTourGuideService {
 
@@ -93,6 +111,118 @@ public class TestTourGuideService {
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
 
+	@Test
+	public void locationsAreServedAccordingToTheirFreshness() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.setLocationFreshness(Duration.ofMinutes(5), Duration.ofHours(1));
+
+		User fresh = userLocatedAgo(Duration.ofMinutes(1));
+		User stale = userLocatedAgo(Duration.ofMinutes(10));
+		User expired = userLocatedAgo(Duration.ofDays(2));
+
+		assertSame(fresh.getLastVisitedLocation(), tourGuideService.getUserLocation(fresh));
+		// Stale, returned as is while refreshed in the background
+		VisitedLocation staleLocation = stale.getLastVisitedLocation();
+		assertSame(staleLocation, tourGuideService.getUserLocation(stale));
+		VisitedLocation expiredLocation = expired.getLastVisitedLocation();
+		assertNotSame(expiredLocation, tourGuideService.getUserLocation(expired));
+		// Stale for a caller asking for a fresher location than the default
+		assertSame(fresh.getLastVisitedLocation(), tourGuideService.getUserLocation(fresh, Duration.ofSeconds(10)));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((stale.getVisitedLocationCount() < 2 || fresh.getVisitedLocationCount() < 2)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(2, stale.getVisitedLocationCount());
+		assertEquals(2, expired.getVisitedLocationCount());
+		assertEquals(2, fresh.getVisitedLocationCount());
+	}
+
+	private static User userLocatedAgo(Duration age) {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(33.817595, -117.922008),
+				Date.from(Instant.now().minus(age))));
+		return user;
+	}
+
+	@Test
+	public void concurrentTrackingsOfAUserShareOneLocation() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		CompletableFuture<VisitedLocation> first = tourGuideService.trackUserLocationAsync(user);
+		CompletableFuture<VisitedLocation> second = tourGuideService.trackUserLocationAsync(user, ExecutionLane.BACKGROUND);
+		VisitedLocation firstLocation = first.join();
+		VisitedLocation secondLocation = second.join();
+		// Once completed, the next tracking locates the user again
+		tourGuideService.trackUserLocation(user);
+		tourGuideService.tracker.stopTracking();
+
+		assertSame(firstLocation, secondLocation);
+		assertEquals(1, tourGuideService.getSharedTrackings());
+		assertEquals(2, user.getVisitedLocationCount());
+	}
+
+	@Test
+	public void interactiveTrackingDoesNotWaitForAQueuedBackgroundOne() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		CountDownLatch release = new CountDownLatch(1);
+		GpsGateway gpsGateway = new GpsGateway() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				// The other users hold the background threads until released
+				if (!userId.equals(user.getUserId())) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return new VisitedLocation(userId, new Location(0, -150), new Date());
+			}
+
+			@Override
+			public List<Attraction> getAttractions() {
+				return gpsUtil.getAttractions();
+			}
+		};
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 10);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsGateway, rewardsService,
+				new TripPricerGateway(new TripPricer()));
+
+		List<CompletableFuture<VisitedLocation>> blockers = new ArrayList<>();
+		for (int i = 0; i < 150; i++) {
+			User blocker = new User(UUID.randomUUID(), "blocker" + i, "000", "blocker" + i + "@tourGuide.com");
+			blockers.add(tourGuideService.trackUserLocationAsync(blocker, ExecutionLane.BACKGROUND));
+		}
+		try {
+			CompletableFuture<VisitedLocation> background = tourGuideService.trackUserLocationAsync(user,
+					ExecutionLane.BACKGROUND);
+			VisitedLocation interactive = tourGuideService.trackUserLocationAsync(user).get(5, TimeUnit.SECONDS);
+
+			// Shared with the queued background tracking, which will not locate the user again
+			assertSame(interactive, background.get(5, TimeUnit.SECONDS));
+			assertEquals(1, user.getVisitedLocationCount());
+		} finally {
+			release.countDown();
+		}
+		blockers.forEach(CompletableFuture::join);
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(1, user.getVisitedLocationCount());
+	}
+
 //	//@Disabled // Not yet implemented
 	@Test
 	public void getNearbyAttractions() {
@@ -116,6 +246,59 @@ public class TestTourGuideService {
 		assertEquals(5, attractions.size());
 	}
 
+	@Test
+	public void batchRanksFromTheLastLocationsAndRefreshesExpiredOnes() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User expired = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation expiredLocation = new VisitedLocation(expired.getUserId(), new Location(33.8, -117.9),
+				Date.from(Instant.now().minus(Duration.ofDays(2))));
+		expired.addToVisitedLocations(expiredLocation);
+		User unlocated = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+
+		Map<UUID, NearbyAttractionsFromLocation> nearbyAttractions = tourGuideService
+				.getNearByAttractions(List.of(expired, unlocated), 5);
+
+		// Served without waiting for the expired location to be refreshed
+		assertSame(expiredLocation, nearbyAttractions.get(expired.getUserId()).getVisitedLocation());
+		assertEquals(5, nearbyAttractions.get(expired.getUserId()).getAttractions().size());
+		assertSame(unlocated.getLastVisitedLocation(), nearbyAttractions.get(unlocated.getUserId()).getVisitedLocation());
+		assertEquals(5, nearbyAttractions.get(unlocated.getUserId()).getAttractions().size());
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (expired.getVisitedLocationCount() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(2, expired.getVisitedLocationCount());
+		assertEquals(1, unlocated.getVisitedLocationCount());
+	}
+
+	@Test
+	public void trackingReturnsTheLocationWhenTheRewardsFail() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new GpsUtilGateway(gpsUtil), (attractionId, userId) -> {
+			throw new UpstreamUnavailableException("Rewards upstream down for the test");
+		});
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		// A location at an attraction, whose points are asked for by the calculation of the tracking
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(user.getUserId(), visitedLocation.userId);
+		assertEquals(2, user.getVisitedLocationCount());
+		assertTrue(user.getUserRewards().isEmpty());
+	}
+
 	public void getTripDeals() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
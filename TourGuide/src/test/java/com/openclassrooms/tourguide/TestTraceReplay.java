@@ -0,0 +1,90 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.load.LocationTrace;
+import com.openclassrooms.tourguide.load.TraceGenerator;
+import com.openclassrooms.tourguide.load.TraceReplayer;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedRewardsGateway;
+import com.openclassrooms.tourguide.upstream.simulation.UpstreamProfile;
+
+/**
+ * Replays location traces against TourGuideService. The throughput test is run with the load-test profile:
+ * <p>
+ * mvn test -Pload-test -Dtourguide.loadtest.replay.users=10000 -Dtourguide.loadtest.replay.speedup=600
+ * <p>
+ * Available settings (system properties prefixed by tourguide.loadtest.replay.): users, hours, intervalMinutes,
+ * speedup, maxInFlight, trace (a recorded trace to replay instead of a generated one) and report (output file).
+ */
+public class TestTraceReplay {
+
+	@Test
+	public void replayedTraceEarnsRewards(@TempDir Path directory) throws Exception {
+		RewardsService rewardsService = new RewardsService(new SimulatedGpsGateway(new UpstreamProfile(), 7),
+				new SimulatedRewardsGateway(new UpstreamProfile(), 7));
+		TourGuideService tourGuideService = newTourGuideService(rewardsService);
+		LocationTrace trace = new TraceGenerator(rewardsService.getAttractionCatalog().getAttractions(), 7)
+				.generate(50, Duration.ofHours(1), Duration.ofMinutes(1));
+
+		Path tracePath = directory.resolve("trace.csv");
+		trace.writeTo(tracePath);
+		LocationTrace readTrace = LocationTrace.read(tracePath);
+		assertEquals(trace.getPoints().size(), readTrace.getPoints().size());
+		assertEquals(trace.getUserIds(), readTrace.getUserIds());
+
+		// An hour in a tenth of a second
+		TraceReplayer.ReplayReport report = new TraceReplayer(tourGuideService, 36_000, 100).replay(readTrace);
+
+		assertEquals(trace.getPoints().size(), report.getPoints());
+		assertEquals(0, report.getFailures());
+		// Most users stay around attractions, unlike the internal users spread over the globe
+		assertTrue(report.getUsersRewarded() > 25, report.getUsersRewarded() + " users rewarded");
+		assertEquals(trace.getPoints().size(), LocationTrace.record(tourGuideService.getAllUsers()).getPoints().size());
+	}
+
+	@EnabledIfSystemProperty(named = "tourguide.loadtest", matches = "true")
+	@Test
+	public void sustainedReplayThroughput() throws Exception {
+		RewardsService rewardsService = new RewardsService(new SimulatedGpsGateway(new UpstreamProfile(), 7),
+				new SimulatedRewardsGateway(new UpstreamProfile(), 7));
+		TourGuideService tourGuideService = newTourGuideService(rewardsService);
+		String tracePath = System.getProperty("tourguide.loadtest.replay.trace");
+		LocationTrace trace = tracePath != null ? LocationTrace.read(Path.of(tracePath))
+				: new TraceGenerator(rewardsService.getAttractionCatalog().getAttractions(), 7).generate(
+						Integer.getInteger("tourguide.loadtest.replay.users", 1000),
+						Duration.ofHours(Integer.getInteger("tourguide.loadtest.replay.hours", 24)),
+						Duration.ofMinutes(Integer.getInteger("tourguide.loadtest.replay.intervalMinutes", 15)));
+
+		TraceReplayer.ReplayReport report = new TraceReplayer(tourGuideService,
+				Double.parseDouble(System.getProperty("tourguide.loadtest.replay.speedup", "3600")),
+				Integer.getInteger("tourguide.loadtest.replay.maxInFlight", 200)).replay(trace);
+		Path reportPath = Path.of(System.getProperty("tourguide.loadtest.replay.report", "target/replay-report.json"));
+		report.writeTo(reportPath);
+
+		System.out.println("Replay report written to " + reportPath.toAbsolutePath() + ": "
+				+ Files.readString(reportPath));
+		assertEquals(0, report.getFailures());
+	}
+
+	private static TourGuideService newTourGuideService(RewardsService rewardsService) {
+		InternalTestHelper.setInternalUserNumber(0);
+		return new TourGuideService(new SimulatedGpsGateway(new UpstreamProfile(), 7), rewardsService,
+				new TripPricerGateway(new TripPricer()));
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestUser {
+
+	@Test
+	public void concurrentUpdatesAreNotLost() throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		int threads = 8;
+		int perThread = 500;
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < perThread; i++) {
+					VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(1, 2), new Date());
+					user.addToVisitedLocations(visitedLocation);
+					// Every thread tries to reward the same attractions
+					Attraction attraction = new Attraction("Attraction " + i, "City", "State", 1, 2);
+					user.addUserReward(new UserReward(visitedLocation, attraction, thread));
+				}
+			}, executorService));
+		}
+		start.countDown();
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		executorService.shutdown();
+
+		assertEquals(threads * perThread, user.getVisitedLocationCount());
+		assertEquals(threads * perThread, user.getVisitedLocationsVersion());
+		assertEquals(perThread, user.getUserRewards().size());
+		assertEquals(perThread, user.getUserRewardsVersion());
+		Set<String> names = new HashSet<>();
+		user.getUserRewards().forEach(reward -> names.add(reward.attraction.attractionName));
+		assertEquals(perThread, names.size());
+	}
+
+	@Test
+	public void rewardsSnapshotIsNotAffectedByLaterRewards() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(1, 2), new Date());
+		Attraction first = new Attraction("First", "City", "State", 1, 2);
+		Attraction second = new Attraction("Second", "City", "State", 1, 2);
+
+		assertTrue(user.addUserReward(new UserReward(visitedLocation, first, 10)));
+		List<UserReward> snapshot = user.getUserRewards();
+		assertTrue(user.addUserReward(new UserReward(visitedLocation, second, 10)));
+		assertFalse(user.addUserReward(new UserReward(visitedLocation, first, 10)));
+
+		assertEquals(1, snapshot.size());
+		assertEquals(2, user.getUserRewards().size());
+		assertTrue(user.hasRewardFor(second));
+	}
+
+	@Test
+	public void toStringListsTheRewards() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = new Attraction("First", "City", "State", 1, 2);
+		user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+
+		assertTrue(user.toString().contains(", userRewards=" + user.getUserRewards() + ","));
+	}
+}
@@ -0,0 +1,124 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gpsUtil.location.Attraction;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.dto.UserImportReport;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.UserImportService;
+import com.openclassrooms.tourguide.upstream.TripPricerGateway;
+import com.openclassrooms.tourguide.upstream.UpstreamUnavailableException;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.upstream.simulation.UpstreamProfile;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestUserImportService {
+
+	@Test
+	public void importsUsersInBatchesWithTheirRewards() throws Exception {
+		SimulatedGpsGateway gpsGateway = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 10);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsGateway, rewardsService,
+				new TripPricerGateway(new TripPricer()));
+		tourGuideService.addUser(new User(UUID.randomUUID(), "user42", "000", "user42@tourGuide.com"));
+		Attraction attraction = rewardsService.getAttractionCatalog().getAttractions().get(0);
+
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 2500; i++) {
+			// Out of order, the latest location being at the attraction
+			lines.append("{\"userName\":\"user").append(i).append("\",\"phoneNumber\":\"000\",\"visitedLocations\":[")
+					.append("{\"latitude\":").append(attraction.latitude).append(",\"longitude\":")
+					.append(attraction.longitude).append(",\"timeVisited\":\"2024-05-01T12:00:00Z\"},")
+					.append("{\"latitude\":0,\"longitude\":-150,\"timeVisited\":\"2024-05-01T10:00:00Z\"}]}\n");
+		}
+		lines.append("not json\n");
+		lines.append("{\"userName\":\"lost\",\"visitedLocations\":[{\"latitude\":91,\"longitude\":0,")
+				.append("\"timeVisited\":\"2024-05-01T10:00:00Z\"}]}\n");
+
+		UserImportReport report = new UserImportService(tourGuideService, rewardsService, new ObjectMapper())
+				.importUsers(new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(2502, report.getLinesRead());
+		assertEquals(2499, report.getUsersImported());
+		assertEquals(1, report.getDuplicateUsers());
+		assertEquals(2, report.getInvalidLines());
+		assertEquals(2, report.getErrors().size());
+		assertTrue(report.getErrors().get(0).startsWith("Line 2501"));
+		assertEquals(4998, report.getLocationsImported());
+		assertEquals(0, report.getRewardCalculationsFailed());
+
+		User user = tourGuideService.getUser("user7");
+		assertEquals(attraction.latitude, user.getLastVisitedLocation().location.latitude);
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(0, tourGuideService.getUser("user42").getUserRewards().size());
+	}
+
+	@Test
+	public void reportsNullLocationsAsInvalidLines() throws Exception {
+		SimulatedGpsGateway gpsGateway = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 10);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsGateway, rewardsService,
+				new TripPricerGateway(new TripPricer()));
+
+		String lines = "{\"userName\":\"nullList\",\"visitedLocations\":null}\n"
+				+ "{\"userName\":\"nullLocation\",\"visitedLocations\":[null]}\n"
+				+ "{\"userName\":\"jon\",\"visitedLocations\":[{\"latitude\":0,\"longitude\":-150,"
+				+ "\"timeVisited\":\"2024-05-01T10:00:00Z\"}]}\n";
+
+		UserImportReport report = new UserImportService(tourGuideService, rewardsService, new ObjectMapper())
+				.importUsers(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(3, report.getLinesRead());
+		assertEquals(1, report.getUsersImported());
+		assertEquals(2, report.getInvalidLines());
+		assertEquals(List.of("Line 1: visitedLocations is null", "Line 2: visitedLocations holds a null location"),
+				report.getErrors());
+		assertNull(tourGuideService.getUser("nullList"));
+		assertNull(tourGuideService.getUser("nullLocation"));
+	}
+
+	@Test
+	public void reportsTheFailedRewardCalculations() throws Exception {
+		SimulatedGpsGateway gpsGateway = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+		RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> {
+			throw new UpstreamUnavailableException("Rewards upstream down for the test");
+		});
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsGateway, rewardsService,
+				new TripPricerGateway(new TripPricer()));
+		Attraction attraction = rewardsService.getAttractionCatalog().getAttractions().get(0);
+
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 1500; i++) {
+			// Only the users at the attraction ask the upstream for points
+			double latitude = i % 2 == 0 ? attraction.latitude : 0;
+			double longitude = i % 2 == 0 ? attraction.longitude : -150;
+			lines.append("{\"userName\":\"user").append(i).append("\",\"visitedLocations\":[{\"latitude\":")
+					.append(latitude).append(",\"longitude\":").append(longitude)
+					.append(",\"timeVisited\":\"2024-05-01T12:00:00Z\"}]}\n");
+		}
+
+		UserImportReport report = new UserImportService(tourGuideService, rewardsService, new ObjectMapper())
+				.importUsers(new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(1500, report.getUsersImported());
+		assertEquals(750, report.getRewardCalculationsFailed());
+	}
+
+}
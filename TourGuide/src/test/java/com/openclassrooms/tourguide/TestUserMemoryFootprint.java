@@ -0,0 +1,113 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.service.RewardsLeaderboard;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.upstream.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.upstream.simulation.UpstreamProfile;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Measures the heap retained by one user with representative histories, and fails when it exceeds the budgets
+ * of memory-budgets.properties.
+ * <p>
+ * The retained size is the graph of objects reachable from the user, plus the state the services keep per user:
+ * the evaluation mark of the RewardsService and the entries of the RewardsLeaderboard. The attractions, and the
+ * state the services keep per attraction, are shared by all users and left out. So are the subscribers of the
+ * rewards streams, which only the users with an open stream have, along with the connection behind it.
+ * A change growing the state of every user shows here instead of as an OutOfMemoryError
+ * with the production number of users: raise a budget only along with the heap of the pods.
+ */
+public class TestUserMemoryFootprint {
+
+	private static final int USERS_PER_REPORT = 100_000;
+
+	@Test
+	public void userFootprintWithinBudgets() throws IOException {
+		// The comparators of the leaderboard are lambdas, whose fields JOL only reads this way
+		System.setProperty("jol.magicFieldOffset", "true");
+		Properties budgets = new Properties();
+		try (InputStream input = getClass().getResourceAsStream("/memory-budgets.properties")) {
+			assertNotNull(input, "memory-budgets.properties not found");
+			budgets.load(input);
+		}
+		SimulatedGpsGateway gpsGateway = new SimulatedGpsGateway(new UpstreamProfile(), 7);
+		List<Attraction> attractions = gpsGateway.getAttractions();
+
+		List<String> failures = new ArrayList<>();
+		System.out.println(String.format("%10s %12s %12s %16s", "locations", "bytes/user", "budget", "MB/100k users"));
+		for (int locationCount : new int[] { 0, 10, 100, 10_000 }) {
+			RewardsService rewardsService = new RewardsService(gpsGateway, (attractionId, userId) -> 100);
+			RewardsLeaderboard leaderboard = new RewardsLeaderboard(rewardsService);
+			Map<?, ?> evaluationMarks = (Map<?, ?>) ReflectionTestUtils.getField(rewardsService, "evaluationMarks");
+			// Another user first, so that the shared state and the tables of the maps are there already
+			User other = representativeUser(locationCount, attractions, new SplittableRandom(-1 - locationCount));
+			VisitedLocation otherLocation = new VisitedLocation(other.getUserId(), new Location(0, 0), new Date(0));
+			attractions.forEach(attraction -> leaderboard.onRewardAdded(other, new UserReward(otherLocation, attraction, 1)));
+			rewardsService.calculateRewards(other);
+			GraphLayout sharedLayout = GraphLayout.parseInstance(leaderboard, evaluationMarks, attractions.toArray());
+
+			User user = representativeUser(locationCount, attractions, new SplittableRandom(locationCount));
+			user.getUserRewards().forEach(userReward -> leaderboard.onRewardAdded(user, userReward));
+			rewardsService.calculateRewards(user);
+			long retained = GraphLayout.parseInstance(user, leaderboard, evaluationMarks).subtract(sharedLayout).totalSize();
+			long budget = Long.parseLong(budgets.getProperty("user.locations." + locationCount));
+			System.out.println(String.format("%10d %12d %12d %16.1f", locationCount, retained, budget,
+					retained * (double) USERS_PER_REPORT / (1024 * 1024)));
+			if (retained > budget) {
+				failures.add(locationCount + " locations: " + retained + " bytes, budget " + budget);
+			}
+		}
+		assertTrue(failures.isEmpty(), "User footprint over budget: " + failures);
+	}
+
+	/**
+	 * A user moving around an attraction every 15 minutes, rewarded for about one location in twenty,
+	 * with the trip deals of one pricing.
+	 */
+	private static User representativeUser(int locationCount, List<Attraction> attractions, SplittableRandom random) {
+		UUID userId = new UUID(random.nextLong(), random.nextLong());
+		User user = new User(userId, "internalUser" + locationCount, "000", "internalUser" + locationCount + "@tourGuide.com");
+		Attraction home = attractions.get(random.nextInt(attractions.size()));
+		long time = 1_700_000_000_000L;
+		for (int i = 0; i < locationCount; i++) {
+			time += 15 * 60 * 1000 + random.nextInt(60_000);
+			VisitedLocation visitedLocation = new VisitedLocation(userId, new Location(
+					home.latitude + random.nextGaussian() * 0.05, home.longitude + random.nextGaussian() * 0.05),
+					new Date(time));
+			user.addToVisitedLocations(visitedLocation);
+			if (i % 20 == 0) {
+				user.addUserReward(new UserReward(visitedLocation, attractions.get(random.nextInt(attractions.size())),
+						random.nextInt(1000)));
+			}
+		}
+		List<Provider> tripDeals = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			tripDeals.add(new Provider(UUID.randomUUID(), "Provider" + i, random.nextInt(1000)));
+		}
+		user.setTripDeals(tripDeals);
+		return user;
+	}
+
+}
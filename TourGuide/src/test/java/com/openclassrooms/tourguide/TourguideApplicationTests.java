@@ -1,13 +1,45 @@
 package com.openclassrooms.tourguide;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.openclassrooms.tourguide.service.TourGuideService;
+
 @SpringBootTest
 class TourguideApplicationTests {
 
+	@Autowired
+	private ApplicationAvailability applicationAvailability;
+
+	@Autowired
+	private TourGuideService tourGuideService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void tracksOnceReadyAfterWarmUp() {
+		assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+		assertTrue(tourGuideService.tracker.isTracking());
+	}
+
+	@Test
+	void publishesTheUpstreamLimits() {
+		for (String upstream : new String[] { "gps", "rewards", "tripPricer" }) {
+			assertNotNull(meterRegistry.find("tourguide.upstream.limit").tag("upstream", upstream).gauge());
+		}
+	}
+
 }
@@ -0,0 +1,221 @@
+package com.openclassrooms.tourguide.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Open-loop HTTP load generator for the TourGuide REST endpoints.
+ * <p>
+ * Requests are scheduled at a fixed rate, spread round-robin over the endpoints, and served by a fixed
+ * number of workers. Latencies are measured from the time each request was scheduled to be sent, not from
+ * the time a worker got to send it, so a slow server is not hidden by the generator slowing down with it
+ * (coordinated omission). Each endpoint gets its own HdrHistogram, reported as percentiles in a JSON file.
+ */
+public class HttpLoadGenerator {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private final URI baseUri;
+	private final List<String> endpoints;
+	private final List<String> userNames;
+	private final int rate;
+	private final int concurrency;
+	private final Duration warmUp;
+	private final Duration duration;
+
+	/**
+	 * @param baseUri The root of the server under test.
+	 * @param endpoints The endpoint paths to call, each taking a userName parameter.
+	 * @param userNames The users the requests are spread over.
+	 * @param rate The total number of requests per second, over all endpoints.
+	 * @param concurrency The number of requests that can be in flight at once.
+	 * @param warmUp The duration of the warm-up phase, whose latencies are not recorded.
+	 * @param duration The duration of the measured phase.
+	 */
+	public HttpLoadGenerator(URI baseUri, List<String> endpoints, List<String> userNames, int rate, int concurrency,
+			Duration warmUp, Duration duration) {
+		this.baseUri = baseUri;
+		this.endpoints = endpoints;
+		this.userNames = userNames;
+		this.rate = rate;
+		this.concurrency = concurrency;
+		this.warmUp = warmUp;
+		this.duration = duration;
+	}
+
+	/**
+	 * Runs the warm-up phase then the measured phase, and returns the statistics of the measured phase.
+	 */
+	public LoadReport run() throws InterruptedException {
+		ExecutorService clientExecutor = Executors.newFixedThreadPool(concurrency);
+		try {
+			HttpClient httpClient = HttpClient.newBuilder()
+					.executor(clientExecutor)
+					.connectTimeout(Duration.ofSeconds(10))
+					.build();
+			drive(httpClient, warmUp, null);
+			Map<String, EndpointStats> stats = new LinkedHashMap<>();
+			endpoints.forEach(endpoint -> stats.put(endpoint, new EndpointStats()));
+			long elapsedNanos = drive(httpClient, duration, stats);
+			return new LoadReport(rate, concurrency, duration.toSeconds(), elapsedNanos, stats);
+		} finally {
+			clientExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Sends requests at the configured rate for the given duration.
+	 *
+	 * @param httpClient The client the requests are sent with.
+	 * @param phase How long requests are scheduled for.
+	 * @param stats Where to record the results, null to discard them.
+	 * @return The time it took to complete every scheduled request, in nanoseconds.
+	 */
+	private long drive(HttpClient httpClient, Duration phase, Map<String, EndpointStats> stats) throws InterruptedException {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long totalRequests = phase.toSeconds() * rate;
+		AtomicLong nextTicket = new AtomicLong();
+		long start = System.nanoTime();
+
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			workers.execute(() -> {
+				long ticket;
+				while ((ticket = nextTicket.getAndIncrement()) < totalRequests) {
+					long intendedStart = start + ticket * intervalNanos;
+					long wait;
+					while ((wait = intendedStart - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					String endpoint = endpoints.get((int) (ticket % endpoints.size()));
+					String userName = userNames.get((int) ((ticket / endpoints.size()) % userNames.size()));
+					boolean success = send(httpClient, endpoint, userName);
+					if (stats != null) {
+						stats.get(endpoint).record(System.nanoTime() - intendedStart, success);
+					}
+				}
+			});
+		}
+		workers.shutdown();
+		workers.awaitTermination(phase.toSeconds() + TimeUnit.MINUTES.toSeconds(10), TimeUnit.SECONDS);
+		return System.nanoTime() - start;
+	}
+
+	private boolean send(HttpClient httpClient, String endpoint, String userName) {
+		HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(endpoint + "?userName=" + userName))
+				.timeout(Duration.ofMinutes(1))
+				.GET()
+				.build();
+		try {
+			HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+			return response.statusCode() < 400;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Latencies and error count of one endpoint.
+	 */
+	public static class EndpointStats {
+		private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+		private final LongAdder errors = new LongAdder();
+
+		void record(long latencyNanos, boolean success) {
+			histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+			if (!success) {
+				errors.increment();
+			}
+		}
+
+		public Histogram getHistogram() {
+			return histogram;
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+	}
+
+	/**
+	 * Result of a measured phase, written as JSON with latencies in milliseconds.
+	 */
+	public static class LoadReport {
+		private final int rate;
+		private final int concurrency;
+		private final long durationSeconds;
+		private final long elapsedNanos;
+		private final Map<String, EndpointStats> stats;
+
+		LoadReport(int rate, int concurrency, long durationSeconds, long elapsedNanos, Map<String, EndpointStats> stats) {
+			this.rate = rate;
+			this.concurrency = concurrency;
+			this.durationSeconds = durationSeconds;
+			this.elapsedNanos = elapsedNanos;
+			this.stats = stats;
+		}
+
+		public Map<String, EndpointStats> getStats() {
+			return stats;
+		}
+
+		public long getTotalErrors() {
+			return stats.values().stream().mapToLong(EndpointStats::getErrors).sum();
+		}
+
+		public void writeTo(Path path) throws IOException {
+			double elapsedSeconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("targetRate", rate);
+			report.put("concurrency", concurrency);
+			report.put("durationSeconds", durationSeconds);
+			report.put("elapsedSeconds", elapsedSeconds);
+
+			List<Map<String, Object>> endpointReports = new ArrayList<>();
+			stats.forEach((endpoint, endpointStats) -> {
+				Histogram histogram = endpointStats.getHistogram();
+				Map<String, Object> endpointReport = new LinkedHashMap<>();
+				endpointReport.put("endpoint", endpoint);
+				endpointReport.put("requests", histogram.getTotalCount());
+				endpointReport.put("errors", endpointStats.getErrors());
+				endpointReport.put("throughput", histogram.getTotalCount() / elapsedSeconds);
+				endpointReport.put("meanMillis", histogram.getMean() / 1000);
+				endpointReport.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+				endpointReport.put("p90Millis", histogram.getValueAtPercentile(90) / 1000.0);
+				endpointReport.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+				endpointReport.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+				endpointReport.put("maxMillis", histogram.getMaxValue() / 1000.0);
+				endpointReports.add(endpointReport);
+			});
+			report.put("endpoints", endpointReports);
+
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+		}
+	}
+}
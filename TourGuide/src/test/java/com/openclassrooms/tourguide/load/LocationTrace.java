@@ -0,0 +1,150 @@
+package com.openclassrooms.tourguide.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Locations visited by users over time, to replay them against TourGuideService.
+ * <p>
+ * Written as CSV, one point per line sorted by time:
+ * <pre>
+ * offsetMillis,userId,latitude,longitude
+ * 0,8a8a0f3e-...,33.817595,-117.922008
+ * </pre>
+ * where offsetMillis is the time of the visit since the start of the trace.
+ */
+public class LocationTrace {
+
+	private static final String HEADER = "offsetMillis,userId,latitude,longitude";
+
+	private final List<TracePoint> points;
+
+	/**
+	 * @param points The points of the trace, in any order.
+	 */
+	public LocationTrace(List<TracePoint> points) {
+		List<TracePoint> sorted = new ArrayList<>(points);
+		sorted.sort(Comparator.comparingLong(TracePoint::getOffsetMillis));
+		this.points = List.copyOf(sorted);
+	}
+
+	/**
+	 * Records the visited locations of users, with offsets from the earliest of them.
+	 *
+	 * @param users The users whose locations are recorded.
+	 * @return The trace of the users.
+	 */
+	public static LocationTrace record(List<User> users) {
+		List<VisitedLocation> visitedLocations = new ArrayList<>();
+		users.forEach(user -> visitedLocations.addAll(user.getVisitedLocations()));
+		long start = visitedLocations.stream().mapToLong(visitedLocation -> visitedLocation.timeVisited.getTime())
+				.min().orElse(0);
+		List<TracePoint> points = new ArrayList<>(visitedLocations.size());
+		for (VisitedLocation visitedLocation : visitedLocations) {
+			points.add(new TracePoint(visitedLocation.timeVisited.getTime() - start, visitedLocation.userId,
+					visitedLocation.location.latitude, visitedLocation.location.longitude));
+		}
+		return new LocationTrace(points);
+	}
+
+	public static LocationTrace read(Path path) throws IOException {
+		List<TracePoint> points = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			String line = reader.readLine();
+			if (!HEADER.equals(line)) {
+				throw new IOException("Not a location trace, expected the header " + HEADER + " in " + path);
+			}
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				points.add(new TracePoint(Long.parseLong(fields[0]), UUID.fromString(fields[1]),
+						Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+			}
+		}
+		return new LocationTrace(points);
+	}
+
+	public void writeTo(Path path) throws IOException {
+		if (path.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			writer.write(HEADER);
+			writer.newLine();
+			for (TracePoint point : points) {
+				writer.write(point.offsetMillis + "," + point.userId + "," + point.latitude + "," + point.longitude);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @return The points of the trace, sorted by time.
+	 */
+	public List<TracePoint> getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return The users of the trace, in the order of their first point.
+	 */
+	public Set<UUID> getUserIds() {
+		Set<UUID> userIds = new LinkedHashSet<>();
+		points.forEach(point -> userIds.add(point.userId));
+		return userIds;
+	}
+
+	/**
+	 * @return The time from the first point to the last one, in milliseconds.
+	 */
+	public long getDurationMillis() {
+		return points.isEmpty() ? 0 : points.get(points.size() - 1).offsetMillis;
+	}
+
+	/**
+	 * One location visited by a user.
+	 */
+	public static class TracePoint {
+		private final long offsetMillis;
+		private final UUID userId;
+		private final double latitude;
+		private final double longitude;
+
+		public TracePoint(long offsetMillis, UUID userId, double latitude, double longitude) {
+			this.offsetMillis = offsetMillis;
+			this.userId = userId;
+			this.latitude = latitude;
+			this.longitude = longitude;
+		}
+
+		public long getOffsetMillis() {
+			return offsetMillis;
+		}
+
+		public UUID getUserId() {
+			return userId;
+		}
+
+		public double getLatitude() {
+			return latitude;
+		}
+
+		public double getLongitude() {
+			return longitude;
+		}
+	}
+}
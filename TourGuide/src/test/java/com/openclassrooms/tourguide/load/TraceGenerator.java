@@ -0,0 +1,135 @@
+package com.openclassrooms.tourguide.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Generates synthetic location traces that move like tourists rather than jump around the globe.
+ * <p>
+ * Every user stays around a hotspot, an attraction or a city centre, wandering a few miles from it. From time
+ * to time, the user heads for another hotspot, preferably an attraction, at travel speed, then stays around it.
+ * Users thus keep coming within the proximity buffer of attractions, as real ones do, and exercise the reward
+ * paths at a realistic rate. The same seed gives the same trace.
+ */
+public class TraceGenerator {
+
+	private static final double MILES_PER_DEGREE = 69.0;
+	// City centres besides the attractions, where users stay without earning rewards
+	private static final List<Location> CITY_CENTRES = List.of(
+			new Location(40.7128, -74.0060), new Location(34.0522, -118.2437), new Location(41.8781, -87.6298),
+			new Location(29.7604, -95.3698), new Location(47.6062, -122.3321), new Location(25.7617, -80.1918),
+			new Location(39.7392, -104.9903), new Location(36.1699, -115.1398));
+
+	private final List<Location> attractions = new ArrayList<>();
+	private final long seed;
+	private double attractionShare = 0.7;
+	private double departureProbability = 0.02;
+	private double wanderMiles = 3;
+	private double travelMilesPerHour = 40;
+
+	/**
+	 * @param attractions The attractions users visit.
+	 * @param seed The seed of the random generator.
+	 */
+	public TraceGenerator(List<Attraction> attractions, long seed) {
+		attractions.forEach(attraction -> this.attractions.add(new Location(attraction.latitude, attraction.longitude)));
+		this.seed = seed;
+	}
+
+	/**
+	 * @param attractionShare The share of the hotspots that are attractions rather than city centres.
+	 */
+	public void setAttractionShare(double attractionShare) {
+		this.attractionShare = attractionShare;
+	}
+
+	/**
+	 * @param departureProbability The probability of heading for another hotspot at each point.
+	 */
+	public void setDepartureProbability(double departureProbability) {
+		this.departureProbability = departureProbability;
+	}
+
+	/**
+	 * @param wanderMiles How far from their hotspot users wander, as a standard deviation.
+	 */
+	public void setWanderMiles(double wanderMiles) {
+		this.wanderMiles = wanderMiles;
+	}
+
+	/**
+	 * Generates the trace of users reporting their location at regular intervals, jittered.
+	 *
+	 * @param userCount The number of users.
+	 * @param duration The duration of the trace.
+	 * @param interval The time between two locations of a user.
+	 * @return The trace.
+	 */
+	public LocationTrace generate(int userCount, Duration duration, Duration interval) {
+		SplittableRandom random = new SplittableRandom(seed);
+		long intervalMillis = interval.toMillis();
+		double travelMilesPerPoint = travelMilesPerHour * intervalMillis / Duration.ofHours(1).toMillis();
+		List<LocationTrace.TracePoint> points = new ArrayList<>();
+		for (int u = 0; u < userCount; u++) {
+			UUID userId = new UUID(random.nextLong(), random.nextLong());
+			Location hotspot = nextHotspot(random);
+			Location position = wander(hotspot, random);
+			boolean travelling = false;
+			// Users report out of phase with each other
+			for (long offset = random.nextLong(intervalMillis); offset <= duration.toMillis(); offset += intervalMillis) {
+				if (!travelling && random.nextDouble() < departureProbability) {
+					hotspot = nextHotspot(random);
+					travelling = true;
+				}
+				if (travelling) {
+					position = travelTowards(position, hotspot, travelMilesPerPoint);
+					travelling = position.latitude != hotspot.latitude || position.longitude != hotspot.longitude;
+				} else {
+					position = wander(hotspot, random);
+				}
+				long jitter = random.nextLong(intervalMillis / 10 + 1);
+				points.add(new LocationTrace.TracePoint(Math.min(offset + jitter, duration.toMillis()), userId,
+						position.latitude, position.longitude));
+			}
+		}
+		return new LocationTrace(points);
+	}
+
+	private Location nextHotspot(SplittableRandom random) {
+		if (!attractions.isEmpty() && random.nextDouble() < attractionShare) {
+			return attractions.get(random.nextInt(attractions.size()));
+		}
+		return CITY_CENTRES.get(random.nextInt(CITY_CENTRES.size()));
+	}
+
+	private Location wander(Location hotspot, SplittableRandom random) {
+		double northMiles = random.nextGaussian() * wanderMiles;
+		double eastMiles = random.nextGaussian() * wanderMiles;
+		return offset(hotspot, northMiles, eastMiles);
+	}
+
+	private static Location travelTowards(Location from, Location to, double miles) {
+		double northMiles = (to.latitude - from.latitude) * MILES_PER_DEGREE;
+		double eastMiles = (to.longitude - from.longitude) * MILES_PER_DEGREE * Math.cos(Math.toRadians(from.latitude));
+		double remaining = Math.hypot(northMiles, eastMiles);
+		if (remaining <= miles) {
+			return to;
+		}
+		return offset(from, northMiles * miles / remaining, eastMiles * miles / remaining);
+	}
+
+	private static Location offset(Location location, double northMiles, double eastMiles) {
+		double latitude = Math.max(-89.9, Math.min(89.9, location.latitude + northMiles / MILES_PER_DEGREE));
+		double longitude = location.longitude
+				+ eastMiles / (MILES_PER_DEGREE * Math.cos(Math.toRadians(location.latitude)));
+		// Wraps around the antimeridian
+		longitude = ((longitude + 540) % 360) - 180;
+		return new Location(latitude, longitude);
+	}
+}
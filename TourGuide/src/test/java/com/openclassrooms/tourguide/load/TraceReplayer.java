@@ -0,0 +1,197 @@
+package com.openclassrooms.tourguide.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.service.ExecutionLane;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Replays a location trace against TourGuideService on a virtual clock running speedup times faster than
+ * real time.
+ * <p>
+ * Each point is due at the start of the replay plus its offset divided by the speedup, and is recorded with
+ * the virtual time of the visit. At most maxInFlight points are recorded and rewarded at once. The lag of
+ * a point is measured from the time it was due, not from the time it was dispatched, so that a service
+ * falling behind the trace shows as a growing lag instead of a slower replay. Throughput and lag are
+ * sustained when the replay keeps up with the virtual clock until the end of the trace.
+ */
+public class TraceReplayer {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+	private final TourGuideService tourGuideService;
+	private final double speedup;
+	private final int maxInFlight;
+
+	/**
+	 * @param tourGuideService The service the locations are recorded with.
+	 * @param speedup How many times faster than real time the trace is replayed.
+	 * @param maxInFlight The number of points being recorded and rewarded at once at most.
+	 */
+	public TraceReplayer(TourGuideService tourGuideService, double speedup, int maxInFlight) {
+		this.tourGuideService = tourGuideService;
+		this.speedup = speedup;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Adds the users of the trace to the service, then replays the trace and waits for every point to be rewarded.
+	 *
+	 * @param trace The trace to replay.
+	 * @return The statistics of the replay.
+	 */
+	public ReplayReport replay(LocationTrace trace) throws InterruptedException {
+		Map<UUID, User> users = new HashMap<>();
+		for (UUID userId : trace.getUserIds()) {
+			String userName = "replay" + users.size();
+			User user = new User(userId, userName, "000", userName + "@tourGuide.com");
+			tourGuideService.addUser(user);
+			users.put(userId, user);
+		}
+
+		Histogram lag = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+		LongAdder failures = new LongAdder();
+		Semaphore window = new Semaphore(maxInFlight);
+		long virtualStartMillis = System.currentTimeMillis();
+		long start = System.nanoTime();
+		for (LocationTrace.TracePoint point : trace.getPoints()) {
+			long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(point.getOffsetMillis()) / speedup);
+			long wait;
+			while ((wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			window.acquire();
+			User user = users.get(point.getUserId());
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(),
+					new Location(point.getLatitude(), point.getLongitude()),
+					new Date(virtualStartMillis + point.getOffsetMillis()));
+			CompletableFuture<Void> recording;
+			try {
+				recording = tourGuideService.recordUserLocation(user, visitedLocation, ExecutionLane.BACKGROUND);
+			} catch (RuntimeException e) {
+				recording = CompletableFuture.failedFuture(e);
+			}
+			recording.whenComplete((result, ex) -> {
+				if (ex != null) {
+					failures.increment();
+				}
+				lag.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), HIGHEST_TRACKABLE_MICROS));
+				window.release();
+			});
+		}
+		// Every permit is back once the last point was rewarded
+		window.acquire(maxInFlight);
+		window.release(maxInFlight);
+		long elapsedNanos = System.nanoTime() - start;
+
+		long rewards = users.values().stream().mapToLong(user -> user.getUserRewards().size()).sum();
+		long usersRewarded = users.values().stream().filter(user -> !user.getUserRewards().isEmpty()).count();
+		return new ReplayReport(trace.getPoints().size(), users.size(), trace.getDurationMillis(), speedup,
+				elapsedNanos, lag, failures.sum(), rewards, usersRewarded);
+	}
+
+	/**
+	 * Result of a replay, written as JSON with lags in milliseconds.
+	 */
+	public static class ReplayReport {
+		private final long points;
+		private final int users;
+		private final long traceMillis;
+		private final double speedup;
+		private final long elapsedNanos;
+		private final Histogram lag;
+		private final long failures;
+		private final long rewards;
+		private final long usersRewarded;
+
+		ReplayReport(long points, int users, long traceMillis, double speedup, long elapsedNanos, Histogram lag,
+				long failures, long rewards, long usersRewarded) {
+			this.points = points;
+			this.users = users;
+			this.traceMillis = traceMillis;
+			this.speedup = speedup;
+			this.elapsedNanos = elapsedNanos;
+			this.lag = lag;
+			this.failures = failures;
+			this.rewards = rewards;
+			this.usersRewarded = usersRewarded;
+		}
+
+		public long getPoints() {
+			return points;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		public long getRewards() {
+			return rewards;
+		}
+
+		public long getUsersRewarded() {
+			return usersRewarded;
+		}
+
+		/**
+		 * @return The points recorded and rewarded per second of real time.
+		 */
+		public double getThroughput() {
+			return points / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+		}
+
+		/**
+		 * @return How many times faster than real time the trace was actually replayed, at most the speedup.
+		 */
+		public double getAchievedSpeedup() {
+			return TimeUnit.MILLISECONDS.toNanos(traceMillis) / (double) elapsedNanos;
+		}
+
+		public Histogram getLag() {
+			return lag;
+		}
+
+		public void writeTo(Path path) throws IOException {
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("points", points);
+			report.put("users", users);
+			report.put("traceSeconds", traceMillis / 1000.0);
+			report.put("speedup", speedup);
+			report.put("achievedSpeedup", getAchievedSpeedup());
+			report.put("elapsedSeconds", elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+			report.put("throughput", getThroughput());
+			report.put("failures", failures);
+			report.put("rewards", rewards);
+			report.put("rewardsPerPoint", points == 0 ? 0 : rewards / (double) points);
+			report.put("usersRewarded", usersRewarded);
+			report.put("lagMeanMillis", lag.getMean() / 1000);
+			report.put("lagP50Millis", lag.getValueAtPercentile(50) / 1000.0);
+			report.put("lagP99Millis", lag.getValueAtPercentile(99) / 1000.0);
+			report.put("lagMaxMillis", lag.getMaxValue() / 1000.0);
+
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+		}
+	}
+}